@@ -0,0 +1,87 @@
+package com.example.bitsmap;
+
+import android.animation.ValueAnimator;
+import android.graphics.Matrix;
+import android.view.View;
+import android.view.animation.DecelerateInterpolator;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// Moves MapView's camera: the world point at the centre of the screen and the zoom, with the
+// y axis flipped. Jumps are animated over a few frames on the ui thread instead of stepping the
+// matrix in a loop until some condition holds.
+public class CameraController {
+
+    private static final long DURATION_MS = 300;
+
+    private final View view;
+    private final Matrix worldToScreen;
+    private final ReentrantLock mutex;
+    private final int width, height;
+
+    private final Matrix inverse = new Matrix();
+    private final float[] values = new float[9];
+    private final float[] point = new float[2];
+
+    private ValueAnimator animator;
+
+    public CameraController(View view, Matrix worldToScreen, ReentrantLock mutex, int width, int height) {
+        this.view = view;
+        this.worldToScreen = worldToScreen;
+        this.mutex = mutex;
+        this.width = width;
+        this.height = height;
+    }
+
+    public float getScale() {
+        mutex.lock();
+        worldToScreen.getValues(values);
+        mutex.unlock();
+        return values[Matrix.MSCALE_X];
+    }
+
+    // world coordinates currently at the centre of the screen
+    public void getCenter(float[] out) {
+        mutex.lock();
+        worldToScreen.invert(inverse);
+        mutex.unlock();
+        point[0] = width/2f;
+        point[1] = height/2f;
+        inverse.mapPoints(point);
+        out[0] = point[0];
+        out[1] = point[1];
+    }
+
+    public void animateTo(float cx, float cy, float scale) {
+        cancel();
+
+        float[] from = new float[2];
+        getCenter(from);
+        float fromScale = getScale();
+
+        animator = ValueAnimator.ofFloat(0, 1);
+        animator.setDuration(DURATION_MS);
+        animator.setInterpolator(new DecelerateInterpolator());
+        animator.addUpdateListener(animation -> {
+            float t = (float) animation.getAnimatedValue();
+            set(from[0] + (cx - from[0])*t, from[1] + (cy - from[1])*t, CameraFit.interpolateScale(fromScale, scale, t));
+        });
+        animator.start();
+    }
+
+    // stops a running transition where it is, e.g. when the user grabs the map
+    public void cancel() {
+        if(animator != null) {
+            animator.cancel();
+            animator = null;
+        }
+    }
+
+    private void set(float cx, float cy, float scale) {
+        mutex.lock();
+        worldToScreen.setScale(scale, -scale);
+        worldToScreen.postTranslate(width/2f - scale*cx, height/2f + scale*cy);
+        mutex.unlock();
+        view.invalidate();
+    }
+}
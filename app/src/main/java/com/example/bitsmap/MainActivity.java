@@ -1,7 +1,10 @@
 package com.example.bitsmap;
 
 import android.app.Activity;
+import android.app.AlertDialog;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Spannable;
 import android.text.SpannableString;
 import android.text.style.ForegroundColorSpan;
@@ -12,6 +15,7 @@ import android.widget.Button;
 import android.widget.LinearLayout;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.appcompat.widget.SearchView;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -20,37 +24,49 @@ import androidx.recyclerview.widget.RecyclerView;
 import org.w3c.dom.Text;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
-import java.util.PriorityQueue;
-import java.util.Scanner;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class MainActivity extends Activity {
 
     private static final double RESOLUTION_M = 0.52;
     private static final double FLOOR_DIFF = 3;
+    // the kiosk sees the same few dozen routes over and over
+    private static final int ROUTE_CACHE_SIZE = 64;
+    // below this plain A* is already instant, above it contraction hierarchies are built in the background
+    private static final int CONTRACTION_MIN_NODES = 5000;
+    // how long typing has to pause before the search boxes run the query
+    private static final long SEARCH_DELAY_MS = 120;
 
     private Map<String, MapNode> referencePoints;
     private List<MapNode> nodeList;
-    private Map<Vec3D, MapNode> nodeMap;
     private List<Infra> infraList;
-    private Map<Infratype, Map<Integer, Map<Double, FloorChanger>>> floorChangerMap;
-    private Map<MapNode, List<Integer>> nodeToInfra;
-    private Map<MapNode, List<MapNode>> graph;
-    private MapNode lastNode;
+    private CampusGraph campusGraph;
+    private PathFinder pathFinder;
+    private RoutingProfile.Weights walkingWeights, wheelchairWeights;
+    private RouteCache routeCache;
+    private AnchorTrees anchorTrees;
+    private ContractionHierarchy walkingHierarchy, wheelchairHierarchy;
+    private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+    // set once the activity is torn down, background results arriving after that are dropped
+    private boolean destroyed;
+    // separate so queries never wait behind map loading or building hierarchies
+    private final ScheduledExecutorService searchExecutor = Executors.newSingleThreadScheduledExecutor();
+    private DebouncedSearch debouncedSearch;
+    private FloorChangerIndex floorChangerIndex;
+    private AmenityFinder amenityFinder;
+    private InstructionCompiler instructionCompiler;
     private RelativeLayout relativeLayout;
     private MapView mapView;
 
-    private ArrayList<SearchResult> searchResults;
-
     private RelativeLayout searchLayout;
     private SearchView searchView;
     private RecyclerView searchResultsView;
@@ -71,6 +87,8 @@ public class MainActivity extends Activity {
     private LinearLayout transportLayout;
     private Button walkButton;
     private Button wheelchairButton;
+    private Button nearestWashroomButton;
+    private Button nearestWaterButton;
 
     private boolean mapViewOn;
     private boolean searchFocus;
@@ -85,144 +103,30 @@ public class MainActivity extends Activity {
     private ArrayList<MapNode> path;
 
     private int currentPathIndex;
+    private Maneuver[] maneuvers;
+    private CharSequence[] instructions;
 
     private int currentFloor;
     private int maxFloor;
     private int minFloor;
 
-    // For floor changer nodes, make sure the other Delta corresponds to the actual node.
-    // Each floorchanger node connects to only its directly upper and lower neighbours
-
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        referencePoints = new HashMap<>();
-        nodeList = new ArrayList<>();
-        nodeMap = new TreeMap<>();
-        infraList = new ArrayList<>();
-        nodeToInfra = new HashMap<>();
-        floorChangerMap = new HashMap<>();
-        graph = new HashMap<>();
-        floorSet = new HashSet<>();
         path = new ArrayList<>();
+        routeCache = new RouteCache(ROUTE_CACHE_SIZE);
         searchViewInfra = startInfra = destinationInfra = null;
         usingWheelChair = false;
         viewingPath = false;
 
-        try {
-            Scanner sc = new Scanner(getAssets().open("nodes.txt"));
-
-            Vec3D curPos = new Vec3D(0, 0, 1);
-            addNodeToList(curPos);
-
-            while(sc.hasNextLine()) {
-                String line = sc.nextLine();
-
-                if(line.endsWith(":")) {
-                    referencePoints.put(line.substring(0, line.length()-1), lastNode);
-                }
-                else if(line.startsWith("U ") || line.startsWith("R ") || line.startsWith("L ") || line.startsWith("D ")) {
-                    char direction = line.charAt(0);
-                    line = line.substring(2);
-
-                    String[] params = line.split(" ");
-
-                    if(Character.isDigit(line.charAt(0))) {
-                        double magnitude = Double.parseDouble(params[0]);
-                        curPos = moveVector(direction, curPos, magnitude);
-
-                        MapNode oldNode = lastNode;
-                        addNodeToList(curPos);
-                        MapNode newNode = lastNode;
-
-                        connectNodes(oldNode, newNode);
-                    }
-                    else {
-                        String infraType = params[0];
-                        Infra infra = null;
-                        Orientation orientation = getOrientation(direction);
-
-                        if(infraType.equals("Room")) {
-                            String roomName = getRoomName(params);
-                            infra = new Infra(roomName, infraList.size(), curPos, Infratype.Room, orientation, lastNode);
-                            infraList.add(infra);
-                        }
-                        else if(infraType.equals("Stairs") || infraType.equals("Lift")) {
-                            infra = handleFloorChanger(params, orientation, curPos);
-                        }
-                        else if(infraType.equals("Washroom")) {
-                            String washroomType = params[1];
-                            infra = new Infra("Washroom" + washroomType, infraList.size(), curPos, Infratype.Washroom, orientation, lastNode);
-                            infraList.add(infra);
-                        }
-                        else {
-                            infra = new Infra(infraType, infraList.size(), curPos, Infratype.DrinkingWater, orientation, lastNode);
-                            infraList.add(infra);
-                        }
-
-
-                        if(!nodeToInfra.containsKey(lastNode)) {
-                            nodeToInfra.put(lastNode, new ArrayList<>());
-                        }
-
-                        nodeToInfra.get(lastNode).add(infra.getId());
-                    }
-                }
-                else if(line.startsWith("CLIMB")) {
-                    line = line.substring(6);
-                    String[] params = line.split(" ");
-                    curPos = climbFloorChanger(params, curPos.getZ());
-                    addNodeToList(curPos);
-                }
-                else if(line.startsWith("Connect")) {
-                    MapNode refPoint = referencePoints.get(line.split(" ")[1]);
-
-                    connectNodes(lastNode, refPoint);
-                }
-                else if(line.startsWith("Goto")) {
-                    MapNode refPoint = referencePoints.get(line.split(" ")[1]);
-                    curPos = refPoint.getPosition();
-                    lastNode = refPoint;
-                }
-            }
-
-            connectFloorChangers();
-
-            for(MapNode n : nodeList) {
-                System.out.println("id: " + n.getId() + "\tX: " + n.getPosition().getX() + "\tY: " + n.getPosition().getY() + "\tZ: " + n.getPosition().getZ());
-                System.out.print("Connected to: ");
-                for(MapNode n1 : graph.get(n)) System.out.print(n1.getId() + ", ");
-                System.out.println();
-
-                List<Integer> infraIndexList = nodeToInfra.get(n);
-                if(infraIndexList == null) continue;
-                for(int i : infraIndexList) System.out.print(infraList.get(i).getName() + ", ");
-                System.out.println();
-            }
-
-            for(Map<Integer, Map<Double, FloorChanger>> m : floorChangerMap.values()) {
-                for(Map<Double, FloorChanger> m2 : m.values()) {
-                    for(FloorChanger fc : m2.values()) {
-                        System.out.println(fc);
-                    }
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        Integer[] floors = new Integer[floorSet.size()];
-        floorSet.toArray(floors);
-        minFloor = floors[0];
-        maxFloor = floors[floors.length-1];
-
-        // initializing our view.
+        // initializing our view, it stays empty until the loader hands it the graph
         relativeLayout = findViewById(R.id.idRLView);
-        mapView = new MapView(this, graph, nodeToInfra, nodeList.get(0), infraList);
+        mapView = new MapView(this);
         relativeLayout.addView(mapView);
         mapViewOn = true;
+        floorButtonsLayout = findViewById(R.id.floorButtonsLayout);
 
         searchLayout = findViewById(R.id.searchLayout);
         searchView = searchLayout.findViewById(R.id.searchView);
@@ -233,11 +137,9 @@ public class MainActivity extends Activity {
         searchView.clearFocus();
         searchFocus = false;
 
-        initializeFloorButtons();
-
-        searchResults = new ArrayList<>();
         searchResultsView.setLayoutManager(new LinearLayoutManager(this));
-        searchResultViewHolder = new SearchResultViewHolder(this, searchResults, searchResultsView);
+        searchResultViewHolder = new SearchResultViewHolder(this, searchResultsView);
+        debouncedSearch = new DebouncedSearch(searchExecutor, this::postToUi, SEARCH_DELAY_MS);
 
         searchView.setOnQueryTextFocusChangeListener ((View v, boolean hasFocus) -> {
             searchFocus = hasFocus;
@@ -262,7 +164,6 @@ public class MainActivity extends Activity {
             @Override
             public boolean onQueryTextChange(String newText) {
                 filterSearchResults(newText);
-                searchResultViewHolder.notifyDataSetChanged();
                 return false;
             }
         });
@@ -276,6 +177,108 @@ public class MainActivity extends Activity {
         directionsLayout = searchLayout.findViewById(R.id.directionsLayout);
 
         bringHudToFront();
+
+        loadMap();
+    }
+
+    // reads map.bin off the ui thread, the map is drawn as soon as the graph is in and the rest
+    // of the ui (floors, search, routing) comes up once the infra has been built
+    private void loadMap() {
+        new MapLoader(backgroundExecutor, this::postToUi).load(() -> getAssets().open("map.bin"), new MapLoader.Listener() {
+            @Override
+            public void onGraphReady(CampusGraph graph) {
+                campusGraph = graph;
+                currentFloor = graph.getMinFloor();
+                mapView.setCampusGraph(graph, currentFloor);
+            }
+
+            @Override
+            public void onMapReady(MapData mapData) {
+                referencePoints = mapData.getReferencePoints();
+                nodeList = mapData.getNodeList();
+                infraList = mapData.getInfraList();
+                floorSet = mapData.getFloorSet();
+                pathFinder = new PathFinder(nodeList, campusGraph);
+                pathFinder.setUseAStar(true);
+                walkingWeights = RoutingProfile.walking().weigh(campusGraph);
+                wheelchairWeights = RoutingProfile.wheelchair().weigh(campusGraph);
+                debouncedSearch.setInfraRanker(new InfraRanker(mapData));
+                floorChangerIndex = new FloorChangerIndex(mapData);
+                amenityFinder = new AmenityFinder(mapData);
+                instructionCompiler = new InstructionCompiler(mapData, floorChangerIndex);
+
+                minFloor = campusGraph.getMinFloor();
+                maxFloor = campusGraph.getMaxFloor();
+
+                mapView.setMapData(mapData);
+                initializeFloorButtons();
+                bringHudToFront();
+                loadAnchorTrees();
+                if(nodeList.size() >= CONTRACTION_MIN_NODES) buildHierarchies();
+            }
+
+            @Override
+            public void onLoadFailed(Exception e) {
+                e.printStackTrace();
+                showLoadFailed();
+            }
+        });
+    }
+
+    // without the map there's nothing to show, so say so rather than leave a blank screen
+    private void showLoadFailed() {
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.map_load_failed)
+                .setMessage(R.string.map_load_failed_message)
+                .setCancelable(false)
+                .setPositiveButton(R.string.retry, (dialog, which) -> loadMap())
+                .setNegativeButton(R.string.close, (dialog, which) -> finish())
+                .show();
+    }
+
+    // big campuses route through contraction hierarchies once they are built, A* until then
+    private void buildHierarchies() {
+        List<MapNode> nodes = nodeList;
+        RoutingProfile.Weights walking = walkingWeights, wheelchair = wheelchairWeights;
+        backgroundExecutor.execute(() -> {
+            ContractionHierarchy walkingCH = new ContractionHierarchy(nodes, walking);
+            ContractionHierarchy wheelchairCH = new ContractionHierarchy(nodes, wheelchair);
+            postToUi(() -> {
+                walkingHierarchy = walkingCH;
+                wheelchairHierarchy = wheelchairCH;
+            });
+        });
+    }
+
+    // routes from the reference points are read off the trees in anchors.bin once it's in,
+    // until then (or if it's missing) they're searched for like any other route
+    private void loadAnchorTrees() {
+        backgroundExecutor.execute(() -> {
+            try(InputStream in = getAssets().open("anchors.bin")) {
+                AnchorTrees trees = AnchorTrees.read(in);
+                postToUi(() -> anchorTrees = trees);
+            } catch(IOException | RuntimeException e) {
+                // a damaged file is the same as a missing one, routes are still searched for
+                e.printStackTrace();
+            }
+        });
+    }
+
+    // runs r on the main thread unless the activity has been destroyed by then
+    private void postToUi(Runnable r) {
+        uiHandler.post(() -> {
+            if(!destroyed) r.run();
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        destroyed = true;
+        debouncedSearch.cancel();
+        uiHandler.removeCallbacksAndMessages(null);
+        backgroundExecutor.shutdownNow();
+        searchExecutor.shutdownNow();
+        super.onDestroy();
     }
 
     public boolean isMapViewOn() { return isMapViewOn(); }
@@ -347,7 +350,6 @@ public class MainActivity extends Activity {
             @Override
             public boolean onQueryTextChange(String newText) {
                 filterSearchResults(newText);
-                searchResultViewHolder.notifyDataSetChanged();
                 return false;
             }
         });
@@ -388,7 +390,6 @@ public class MainActivity extends Activity {
             @Override
             public boolean onQueryTextChange(String newText) {
                 filterSearchResults(newText);
-                searchResultViewHolder.notifyDataSetChanged();
                 return false;
             }
         });
@@ -437,6 +438,7 @@ public class MainActivity extends Activity {
 
                 navigationTextView = navigationLayout.findViewById(R.id.promptView);
                 currentPathIndex = 0;
+                compileInstructions();
 
                 if(path.size() >= 2) {
                     mapView.setHighlightNode(path.get(currentPathIndex));
@@ -501,121 +503,68 @@ public class MainActivity extends Activity {
             updateTransportButtons();
             updatePath();
         });
+        nearestWashroomButton = transportLayout.findViewById(R.id.nearestWashroomButton);
+        nearestWaterButton = transportLayout.findViewById(R.id.nearestWaterButton);
+        nearestWashroomButton.setOnClickListener((v) -> routeToNearest(Infratype.Washroom, R.string.nearest_washroom));
+        nearestWaterButton.setOnClickListener((v) -> routeToNearest(Infratype.DrinkingWater, R.string.nearest_water));
         updateTransportButtons();
     }
 
     private static final String haveReachedDestination="\nYou have reached your destination.";
     private static final String destination="destination.";
 
-    private void setCurrentAction(int i) {
-        String Goto="Goto ";
-        int personLoc = i;
-
-        MapNode n1 = path.get(i);
+    // the prompts for the whole route are worked out once, stepping through it just looks them up
+    private void compileInstructions() {
+        maneuvers = instructionCompiler.compile(path, usingWheelChair);
+        instructions = new CharSequence[maneuvers.length];
+        for(int i = 0; i < maneuvers.length; i++) instructions[i] = describe(maneuvers[i]);
+    }
 
-        if(i == path.size()-1) {
-            setTextAndHighlightWithColor(haveReachedDestination, getResources().getColor(R.color.middle_pin_color), 0, 0);
-            return;
-        }
+    private void setCurrentAction(int i) {
+        Maneuver maneuver = maneuvers[i];
+        MapNode middleNode = maneuver.getLandmarkNode();
+        // heading for the destination, which already has its own pin
+        if(maneuver.getKind() == Maneuver.Kind.GoTo && middleNode == path.get(path.size()-1)) middleNode = null;
 
-        i++;
-        MapNode n2 = path.get(i);
+        mapView.setMiddleNode(middleNode);
+        navigationTextView.setText(instructions[i], TextView.BufferType.SPANNABLE);
+    }
 
-        String turnString = "";
-        if(i > 1) {
-            Vec3D dir1 = n1.getPosition().subtract(path.get(i-2).getPosition());
-            Vec3D dir2 = n2.getPosition().subtract(n1.getPosition());
+    private CharSequence describe(Maneuver maneuver) {
+        int color = getResources().getColor(R.color.middle_pin_color);
 
-            double angle = Math.toDegrees(dir1.angle(dir2));
-            if(Math.abs(angle) > 1) {
-                turnString = "Turn " + (angle < 0? "Right by " : "Left by ") + (int)Math.abs(angle) + "° ";
-            }
+        if(maneuver.getKind() == Maneuver.Kind.Arrive) {
+            return highlightWithColor(haveReachedDestination, color, 0, 0);
         }
 
-        if(n1.getPosition().getZ() != n2.getPosition().getZ()) {
-            FloorChanger fc = getFloorChangerInfra(n1, n2);
+        if(maneuver.getKind() == Maneuver.Kind.ChangeFloor) {
+            FloorChanger fc = maneuver.getFloorChanger();
+            if(fc == null) return "Go to Floor: " + (int)path.get(maneuver.getEnd()).getPosition().getZ();
 
             String stairs = "Stairs (" + fc.getIndex() + ")";
-            if(fc.getInfratype() == Infratype.StairsDown) {
-                String cd = "Climb Down ";
-                setTextAndHighlightWithColor(cd+stairs, getResources().getColor(R.color.middle_pin_color), 0, 0);
-                return;
-            }
-            if(fc.getInfratype() == Infratype.StairsUp) {
-                String cu = "Climb Up ";
-                setTextAndHighlightWithColor(cu+stairs, getResources().getColor(R.color.middle_pin_color), 0, 0);
-                return;
-            }
-
-            navigationTextView.setText("Take Lift (" + fc.getIndex() + ") to Floor: " + (int)fc.getOtherEnd().getZ());
-            mapView.setMiddleNode(null);
-            return;
+            if(fc.getInfratype() == Infratype.StairsDown) return highlightWithColor("Climb Down " + stairs, color, 0, 0);
+            if(fc.getInfratype() == Infratype.StairsUp) return highlightWithColor("Climb Up " + stairs, color, 0, 0);
+            return "Take Lift (" + fc.getIndex() + ") to Floor: " + (int)fc.getOtherEnd().getZ();
         }
 
-        Vec3D direction = n2.getPosition().subtract(n1.getPosition());
-        Vec3D newDirection = n2.getPosition().subtract(n1.getPosition());
-
-        String lastNonEmptyInfraInfo = getMostUniqueInfraInformation(n2);
-        MapNode nonEmptyMiddleNode = n2;
-        do {
-            direction = newDirection;
-            i++;
-            if(i >= path.size()) break;
-
-            n1 = n2;
-            n2 = path.get(i);
-            newDirection = n2.getPosition().subtract(n1.getPosition());
-
-            String info = getMostUniqueInfraInformation(n1);
-            if(!info.isEmpty()) {
-                lastNonEmptyInfraInfo = info;
-                nonEmptyMiddleNode = n1;
-            }
-        } while(direction.hasSameDirectionAs(newDirection));
-
-        String infraInfo;
-        MapNode newMiddleNode;
-        if(direction.hasSameDirectionAs(newDirection)) {
-            infraInfo = getMostUniqueInfraInformation(n2);
-            newMiddleNode = n2;
-        }
-        else {
-            infraInfo = getMostUniqueInfraInformation(n1);
-            newMiddleNode = n1;
-        }
-
-        int color = getResources().getColor(R.color.middle_pin_color);
-
-        if(infraInfo.isEmpty()) {
-            if(lastNonEmptyInfraInfo.isEmpty()) {
-                String kg = "Keep Going.";
-                newMiddleNode = n1;
-
-                if(n1 == path.get(path.size()-1)) {
-                    color = getResources().getColor(R.color.finish_red);
-                    newMiddleNode = null;
-                }
-                setTextAndHighlightWithColor(turnString+kg, color, turnString.length(), turnString.length()+kg.length());
-                mapView.setMiddleNode(newMiddleNode);
-                return;
-            }
-            else {
-                infraInfo = lastNonEmptyInfraInfo;
-                newMiddleNode = nonEmptyMiddleNode;
-            }
+        String turnString = "";
+        double angle = maneuver.getTurnAngle();
+        if(Math.abs(angle) > 1) {
+            turnString = "Turn " + (angle < 0? "Right by " : "Left by ") + (int)Math.abs(angle) + "° ";
         }
 
-        mapView.setMiddleNode(newMiddleNode);
-
-        if(mapView.getMiddleNode() == path.get(path.size()-1) || mapView.getMiddleNode() == null) {
-            mapView.setMiddleNode(null);
-            color = getResources().getColor(R.color.finish_red);
+        if(maneuver.getKind() == Maneuver.Kind.KeepGoing) {
+            String kg = "Keep Going.";
+            return highlightWithColor(turnString+kg, color, turnString.length(), turnString.length()+kg.length());
         }
 
-        setTextAndHighlightWithColor(turnString+Goto+infraInfo+".", color, turnString.length()+Goto.length(), turnString.length()+Goto.length()+infraInfo.length());
+        String Goto = "Goto ";
+        String infraInfo = maneuver.getLandmark().getName();
+        if(maneuver.getLandmarkNode() == path.get(path.size()-1)) color = getResources().getColor(R.color.finish_red);
+        return highlightWithColor(turnString+Goto+infraInfo+".", color, turnString.length()+Goto.length(), turnString.length()+Goto.length()+infraInfo.length());
     }
 
-    private void setTextAndHighlightWithColor(String str, int colorResource, int start, int end) {
+    private Spannable highlightWithColor(String str, int colorResource, int start, int end) {
         str = str.trim();
         Spannable spannable = new SpannableString(str);
 
@@ -623,106 +572,45 @@ public class MainActivity extends Activity {
         if(str.endsWith(destination)) {
             spannable.setSpan(new ForegroundColorSpan(getResources().getColor(R.color.finish_red)), str.length()-destination.length(), str.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
         }
-        navigationTextView.setText(spannable, TextView.BufferType.SPANNABLE);
+        return spannable;
     }
 
-    private FloorChanger getFloorChangerInfra(MapNode n1, MapNode n2) {
-        List<FloorChanger> floorChangerList1 = getFloorChangers(n1);
-        List<FloorChanger> floorChangerList2 = getFloorChangers(n2);
-
-        for(FloorChanger fc1 : floorChangerList1) {
-            for(FloorChanger fc2 : floorChangerList2) {
-                if(((fc1.getInfratype() == Infratype.StairsDown && fc2.getInfratype() == Infratype.StairsUp) ||
-                    (fc1.getInfratype() == Infratype.StairsUp && fc2.getInfratype() == Infratype.StairsDown) ||
-                    (fc1.getInfratype() == Infratype.LiftUp && fc2.getInfratype() == Infratype.LiftDown) ||
-                    (fc1.getInfratype() == Infratype.LiftDown && fc2.getInfratype() == Infratype.LiftUp)) &&
-                        fc1.getIndex() == fc2.getIndex() &&
-                    fc1.getOtherEnd().equals(n2.getPosition())) return fc1;
-            }
-        }
-
-        return null;
-    }
-
-    private List<FloorChanger> getFloorChangers(MapNode n) {
-        ArrayList<FloorChanger> toRet = new ArrayList<>();
-
-        for(Map<Integer, Map<Double, FloorChanger>> indexMap : floorChangerMap.values()) {
-            for(Map<Double, FloorChanger> floorMap : indexMap.values()) {
-                for(FloorChanger fc : floorMap.values()) {
-                    if((usingWheelChair && !fc.isAccessible()) || fc.getPosition() != n.getPosition()) continue;
-
-                    toRet.add(fc);
-                }
-            }
-        }
-
-        return toRet;
-    }
-
-    private String getMostUniqueInfraInformation(MapNode n) {
-        List<Integer> infraIndexList = nodeToInfra.get(n);
-        if(infraIndexList == null || infraIndexList.isEmpty()) return "";
-
-        Infra infra = null;
-        for(int i : infraIndexList) {
-            if(infra == null) {
-                infra = infraList.get(i);
-                continue;
-            }
-
-            Infra inf = infraList.get(i);
-
-            if(preferInfratypeTo(inf.getInfratype(), infra.getInfratype())) {
-                infra = inf;
-            }
-        }
+    private void updatePath() {
+        if(startInfra == null || destinationInfra == null || pathFinder == null) return;
 
-        return infra.getName();
+        MapNode n2 = destinationInfra.getMapNode();
+        findPath(startInfra, destinationInfra, usingWheelChair);
+        // no route for this mode, just show the destination
+        if(path.isEmpty()) path.add(n2);
+        mapView.setPath(path);
+        moveToFloor((int)path.get(0).getPosition().getZ());
     }
 
-    private boolean preferInfratypeTo(Infratype t1, Infratype t2) {
-        if(t1 == Infratype.Room) return true;
-        if(t1 == Infratype.Washroom) {
-            if(t2 == Infratype.Room) return false;
-        }
-        if(t1 == Infratype.DrinkingWater) {
-            if(t2 == Infratype.Room) return false;
-            if(t2 == Infratype.Washroom) return false;
-        }
-        if(t1 == Infratype.LiftDown || t1 == Infratype.LiftUp) {
-            if(t2 == Infratype.Room) return false;
-            if(t2 == Infratype.Washroom) return false;
-            if(t2 == Infratype.DrinkingWater) return false;
-        }
+    // picks the closest one from the start as the destination, the route found on the way is cached
+    // so the directions screen doesn't search for it again
+    private void routeToNearest(Infratype type, int labelRes) {
+        if(startInfra == null || amenityFinder == null) return;
 
-        if(t1 == Infratype.StairsDown || t1 == Infratype.StairsUp) {
-            if(t2 == Infratype.Room) return false;
-            if(t2 == Infratype.Washroom) return false;
-            if(t2 == Infratype.DrinkingWater) return false;
-            if(t2 == Infratype.LiftDown || t2 == Infratype.LiftUp) return false;
+        RoutingProfile.Weights weights = usingWheelChair? wheelchairWeights : walkingWeights;
+        Infra nearest = amenityFinder.findNearest(pathFinder, startInfra.getMapNode(), type, weights, path);
+        if(nearest == null) {
+            Toast.makeText(this, getString(R.string.none_reachable, getString(labelRes)), Toast.LENGTH_SHORT).show();
+            return;
         }
 
-        return true;
-    }
-
-    private void updatePath() {
-        if(startInfra == null || destinationInfra == null) return;
-
-        MapNode n1 = startInfra.getMapNode();
-        MapNode n2 = destinationInfra.getMapNode();
-        findPath(n1, n2, usingWheelChair);
-        mapView.setPath(path);
-        moveToFloor((int)path.get(0).getPosition().getZ());
+        routeCache.remember(startInfra, nearest, weights, path);
+        setDestinationInfra(nearest);
     }
 
     private void updateTransportButtons() {
         walkButton.setEnabled(usingWheelChair);
         wheelchairButton.setEnabled(!usingWheelChair);
+        // the nearest one is searched for from the start, so there has to be one
+        nearestWashroomButton.setEnabled(startInfra != null);
+        nearestWaterButton.setEnabled(startInfra != null);
     }
 
     private void initializeFloorButtons() {
-        floorButtonsLayout = findViewById(R.id.floorButtonsLayout);
         Integer[] floorArr = new Integer[floorSet.size()];
         floorSet.toArray(floorArr);
         Arrays.sort(floorArr);
@@ -745,8 +633,7 @@ public class MainActivity extends Activity {
                 moveToFloor(btnFloor);
             });
 
-            currentFloor = 1;
-            if(floor == 1) floorButton.setTextColor(getResources().getColor(R.color.white));
+            if(floor == currentFloor) floorButton.setTextColor(getResources().getColor(R.color.white));
 
             floorButtonsLayout.addView(floorButton, 0);
             floorButton.setTextSize((int)MapView.pxFromDp(this, 12));
@@ -847,15 +734,8 @@ public class MainActivity extends Activity {
     }
 
     private void moveToFloor(int floor) {
-        System.out.println(floor);
-        if(floor == 2) {
-            mapView.setStartNode(nodeList.get(35));
-            currentFloor = 2;
-        }
-        else if(floor == 1) {
-            mapView.setStartNode(nodeList.get(0));
-            currentFloor = 1;
-        }
+        mapView.setFloor(floor);
+        currentFloor = floor;
 
         for(int i = 0; i < floorButtonsLayout.getChildCount(); i++) {
             View v = floorButtonsLayout.getChildAt(i);
@@ -878,6 +758,7 @@ public class MainActivity extends Activity {
         relativeLayout.addView(floorButtonsLayout);
         relativeLayout.removeView(searchResultsView);
         relativeLayout.removeView(navigationLayout);
+        debouncedSearch.cancel();
         directionsLayout.removeView(directionsTextView);
         if(searchLayout.indexOfChild(directionsLayout) == -1) searchLayout.addView(directionsLayout);
         directionsButton.setOnClickListener((View view) -> {
@@ -888,18 +769,13 @@ public class MainActivity extends Activity {
         bringHudToFront();
     }
 
+    // The query runs in the background once typing pauses, and only the rows that changed are rebound.
+    // Results near the start, or else the highlighted node, rank higher.
     private void filterSearchResults(String filterText) {
-        searchResultsView.removeAllViews();
-        searchResults.clear();
-
-        if(!filterText.isEmpty()) {
-            for (Infra infra : infraList) {
-                if ((infra.getName()+", Floor: " + (int)infra.getPosition().getZ()).toLowerCase(Locale.ROOT).contains(filterText.toLowerCase(Locale.ROOT))) {
-                    if(infra.getName().toLowerCase(Locale.ROOT).equals("fireextinguisher") || infra.getName().toLowerCase(Locale.ROOT).equals("firehose")) continue;
-                    searchResults.add(new SearchResult(infra, infra.getMapNode()));
-                }
-            }
-        }
+        MapNode origin = startInfra != null? startInfra.getMapNode() : mapView.getHighlightNode();
+        RoutingProfile.Weights weights = usingWheelChair? wheelchairWeights : walkingWeights;
+        if(weights == null) origin = null;
+        debouncedSearch.submit(filterText, origin, weights, (String query, List<SearchResult> results) -> searchResultViewHolder.submitList(results));
     }
 
     private void bringHudToFront() {
@@ -908,297 +784,18 @@ public class MainActivity extends Activity {
         relativeLayout.bringChildToFront(searchLayout);
     }
 
-    private class HeapNode implements Comparable<HeapNode> {
-        double dist;
-        MapNode node;
-
-        public HeapNode(double dist, MapNode node) {
-            this.dist = dist;
-            this.node = node;
-        }
-
-        public int compareTo(HeapNode n) {
-            if(dist < n.dist) return -1;
-            if(dist > n.dist) return 1;
-            return 0;
-        }
-    }
-
-    private void setPath(int[] parents, int id) {
-        if(id == -1) return;
-
-        setPath(parents, parents[id]);
-        path.add(nodeMap.get(nodeList.get(id).getPosition()));
-        System.out.println("Id: " + id + "\t" + nodeList.get(id).getPosition());
-    }
-
-    private void findPath(MapNode n1, MapNode n2, boolean onWheelchair) {
-        double[] dist = new double[nodeList.size()];
-        PriorityQueue<HeapNode> pq = new PriorityQueue<>();
-        pq.add(new HeapNode(0, n1));
-        dist[n1.getId()] = 0;
-        int[] parents = new int[nodeList.size()];
-
-        for(int i = 0; i < dist.length; i++) {
-            if(i != n1.getId()) {
-                dist[i] = Double.POSITIVE_INFINITY;
-                parents[i] = -1;
-            }
-        }
-
-        parents[n1.getId()] = -1;
-
-        while(!pq.isEmpty()) {
-            HeapNode hn = pq.poll();
-            int u = hn.node.getId();
-
-//            System.out.println("Checking node: " + hn.node.getId() + "\t" + hn.node.getPosition() + "\t" + hn.dist);
-
-            List<MapNode> nodes = graph.get(hn.node);
-            for(MapNode node : nodes) {
-//                System.out.println("Node: " + node.getId() + "\t" + node.getPosition());
-//                System.out.println("U: " + dist[u] + "\tV: " + dist[node.getId()]);
-
-                if(!transitionValid(hn.node, node, onWheelchair)) continue;
-
-                double weight = hn.node.getPosition().dist(node.getPosition());
-                int v = node.getId();
-//                System.out.println(dist[u] + weight);
-//                System.out.println(dist[v]);
-//                System.out.println(dist[v] > dist[u] + weight);
-
-                if(dist[v] > dist[u] + weight) {
-                    dist[v] = dist[u] + weight;
-                    pq.add(new HeapNode(weight, node));
-                    parents[v] = u;
-//                    System.out.println("Set parent of " + v + " to " + u);
-                }
-            }
-        }
-
-        path.clear();
-        setPath(parents, n2.getId());
-
-    }
-
-    // Assumes the nodes are connected properly
-    private boolean transitionValid(MapNode n1, MapNode n2, boolean onWheelchair) {
-        if(!onWheelchair) return true;
-        if(n1.getPosition().getZ() == n2.getPosition().getZ()) return true;
-
-        List<Integer> l1 = nodeToInfra.get(n1);
-
-//        System.out.println("Checking at " + n1.getId() + " and " + n2.getId());
-        // n1 accessibility checked here
-        Set<Infratype> floorChangerTypes1 = new HashSet<>();
-        for(Integer i : l1) {
-            Infra infra = infraList.get(i);
-//            System.out.println(infra.getInfratype());
-            if(infra instanceof FloorChanger && ((FloorChanger)infra).isAccessible()) {
-                floorChangerTypes1.add(infra.getInfratype());
-            }
-        }
-
-        double dz = n1.getPosition().getZ() - n2.getPosition().getZ();
-
-//        System.out.println("Checking for dz: " + dz);
-//        System.out.println(floorChangerTypes1.size());
-
-        // n2 accessibility checked here
-        for(Infratype t : floorChangerTypes1) {
-            if(dz < 0) {
-                if(t == Infratype.LiftUp && accessibleFloorChangerTypeExistsAtNode(Infratype.LiftDown, n2)) return true;
-                if(t == Infratype.StairsUp && accessibleFloorChangerTypeExistsAtNode(Infratype.StairsDown, n2)) return true;
-            }
-            else {
-                if(t == Infratype.LiftDown && accessibleFloorChangerTypeExistsAtNode(Infratype.LiftUp, n2)) return true;
-                if(t == Infratype.StairsDown && accessibleFloorChangerTypeExistsAtNode(Infratype.StairsUp, n2)) return true;
-            }
-        }
-
-        return false;
-    }
-
-    private boolean accessibleFloorChangerTypeExistsAtNode(Infratype infraType, MapNode n) {
-//        System.out.println("Checking for " + infraType + " at " + n.getPosition());
-        for(Integer infraId : Objects.requireNonNull(nodeToInfra.get(n))) {
-            Infra infra = infraList.get(infraId);
-
-            if(infra instanceof FloorChanger) {
-                FloorChanger fc = (FloorChanger) infra;
-
-                if(!fc.isAccessible()) continue;
-                if(infra.getInfratype() == infraType) return true;
-            }
-        }
-
-        return false;
-    }
-
-    private void addNodeToList(Vec3D pos) {
-        if(!nodeMap.containsKey(pos)) {
-            MapNode n = new MapNode(nodeList.size(), pos);
-            nodeList.add(n);
-            nodeMap.put(pos, n);
-        }
-
-        lastNode = nodeMap.get(pos);
-
-        floorSet.add((int)pos.getZ());
-    }
-
-    private static String getRoomName(String[] params) {
-        String str = "";
-        for(int i = 1; i < params.length; i++) str += params[i] + " ";
-        str = str.trim();
-        return str;
-    }
-
-    private static Orientation getOrientation(char direction) {
-        if(direction == 'U') return Orientation.Up;
-        if(direction == 'L') return Orientation.Left;
-        if(direction == 'D') return Orientation.Down;
-        return Orientation.Right;
-    }
-
-    private static Vec3D moveVector(char direction, Vec3D curPos, double magnitude) {
-        if(direction == 'U') curPos = curPos.add(new Vec3D(0, magnitude, 0));
-        else if(direction == 'L') curPos = curPos.add(new Vec3D(-magnitude, 0, 0));
-        else if(direction == 'D') curPos = curPos.add(new Vec3D(0, -magnitude, 0));
-        else curPos = curPos.add(new Vec3D(magnitude, 0, 0));
-
-        return curPos;
-    }
-
-    private Vec3D climbFloorChanger(String[] params, double currentFloor) {
-        String direction = params[0];
-        String floorChangerType = params[1];
-        int floorChangerIndex = Integer.parseInt(params[2]);
-
-        Infratype infratype = null;
-        if(floorChangerType.equals("Stairs")) {
-            if(direction.equals("Up")) infratype = Infratype.StairsUp;
-            else if(direction.equals("Down")) infratype = Infratype.StairsDown;
-        }
-        else if(floorChangerType.equals("Lift")) {
-            if(direction.equals("Up")) infratype = Infratype.LiftUp;
-            else if(direction.equals("Down")) infratype = Infratype.LiftDown;
-        }
-
-        FloorChanger fc = floorChangerMap.get(infratype).get(floorChangerIndex).get(currentFloor);
-
-//        System.out.println("CLIMBING");
-//        System.out.println(fc);
-
-        return fc.getOtherEnd();
-    }
-
-    private FloorChanger handleFloorChanger(String[] params, Orientation orientation, Vec3D position) {
-        FloorChanger fc;
-
-        String name = "";
-        Infratype infratype = null;
-        int index = Integer.parseInt(params[1]);
-        boolean accessible;
-        double xd, yd, zd = 0;
-
-        if(params[0].equals("Stairs")) {
-            if(params[2].equals("Up")) {
-                infratype = Infratype.StairsUp;
-                zd = 1;
-            }
-            else {
-                infratype = Infratype.StairsDown;
-                zd = -1;
-            }
-        }
-        else if(params[0].equals("Lift")) {
-            if(params[2].equals("Up")) {
-                infratype = Infratype.LiftUp;
-                zd = 1;
-            }
-            else {
-                infratype = Infratype.LiftDown;
-                zd = -1;
-            }
+    private void findPath(Infra start, Infra destination, boolean onWheelchair) {
+        RoutingProfile.Weights weights = onWheelchair? wheelchairWeights : walkingWeights;
+        if(anchorTrees != null && anchorTrees.covers(start.getMapNode(), weights)) {
+            anchorTrees.findPath(start.getMapNode(), destination.getMapNode(), weights, nodeList, path);
+            return;
         }
-
-        name += params[0] + params[2] + params[1];
-
-        accessible = !params[3].equals("NoRamp");
-        xd = Double.parseDouble(params[4]);
-        yd = Double.parseDouble(params[5]);
-        Vec3D otherEnd = position.add(new Vec3D(xd, yd, zd));
-
-        fc = new FloorChanger(name, infraList.size(), orientation, lastNode, position, otherEnd, infratype, accessible, index);
-        infraList.add(fc);
-        if(!floorChangerMap.containsKey(infratype)) floorChangerMap.put(infratype, new HashMap<>());
-        Map<Integer, Map<Double, FloorChanger>> tmp = floorChangerMap.get(infratype);
-        if(!tmp.containsKey(index)) tmp.put(index, new HashMap<>());
-        tmp.get(index).put(fc.getPosition().getZ(), fc);
-
-        return fc;
-    }
-
-    private void connectNodes(MapNode n1, MapNode n2) {
-        if(!graph.containsKey(n1)) graph.put(n1, new ArrayList<>());
-        if(!graph.containsKey(n2)) graph.put(n2, new ArrayList<>());
-
-        graph.get(n1).add(n2);
-        graph.get(n2).add(n1);
-    }
-
-    private void connectFloorChangers() {
-        for(Infratype infratype : floorChangerMap.keySet()) {
-            Map<Integer, Map<Double, FloorChanger>> indexFloorChangers = floorChangerMap.get(infratype);
-            for(Integer index : indexFloorChangers.keySet()) {
-                Map<Double, FloorChanger> floorFloorChangers = indexFloorChangers.get(index);
-                for(Double z : floorFloorChangers.keySet()) {
-                    FloorChanger fc = floorFloorChangers.get(z);
-
-                    Map<Integer, Map<Double, FloorChanger>> otherIndexFloorChangers;
-                    Map<Double, FloorChanger> otherFloorFloorChangers;
-
-                    Infratype otherInfraType = null;
-                    int otherIndex = index;
-                    double otherFloor = fc.getPosition().getZ();
-
-                    if(infratype == Infratype.LiftUp) {
-                        otherInfraType = Infratype.LiftDown;
-                        otherFloor += 1;
-                    }
-                    else if(infratype == Infratype.LiftDown) {
-                        otherInfraType = Infratype.LiftUp;
-                        otherFloor -= 1;
-                    }
-                    else if(infratype == Infratype.StairsUp) {
-                        otherInfraType = Infratype.StairsDown;
-                        otherFloor += 1;
-                    }
-                    else if(infratype == Infratype.StairsDown) {
-                        otherInfraType = Infratype.StairsUp;
-                        otherFloor -= 1;
-                    }
-
-                    otherIndexFloorChangers = floorChangerMap.get(otherInfraType);
-
-                    if(otherIndexFloorChangers != null) {
-                        otherFloorFloorChangers = otherIndexFloorChangers.get(otherIndex);
-                        if(otherFloorFloorChangers != null) {
-                            FloorChanger otherFc = otherFloorFloorChangers.get(otherFloor);
-
-                            if(otherFc != null) {
-                                connectNodes(fc.getMapNode(), otherFc.getMapNode());
-                                System.out.println(fc);
-                                System.out.println(otherFc);
-                                assert(fc.getPosition().equals(otherFc.getOtherEnd()));
-                                assert(otherFc.getPosition().equals(fc.getOtherEnd()));
-                            }
-                        }
-                    }
-                }
-            }
+        ContractionHierarchy hierarchy = onWheelchair? wheelchairHierarchy : walkingHierarchy;
+        if(hierarchy != null) {
+            hierarchy.findPath(start.getMapNode(), destination.getMapNode(), path);
+            return;
         }
+        routeCache.findPath(pathFinder, start, destination, weights, path);
     }
 
     public boolean isSelectingSourceLocation() { return selectingSourceLocation; }
@@ -7,16 +7,17 @@ import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.Picture;
 import android.graphics.Point;
 import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.util.DisplayMetrics;
 import android.view.MotionEvent;
 import android.view.ScaleGestureDetector;
 import android.view.View;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantLock;
@@ -54,9 +55,11 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
     private float lastAngle;
 
     private Map<MapNode, List<Integer>> nodeToInfra;
-    private Map<MapNode, List<MapNode>> graph;
+    private CampusGraph graph;
+    private NodeGrid nodeGrid;
+    private List<MapNode> nodeList;
     private List<Infra> infraList;
-    private MapNode startNode;
+    private int floor;
     private Paint nodePaint;
     private Paint linePaint;
     private Paint textPaint;
@@ -74,6 +77,7 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
     private MapNode highlightNode;
 
     private ReentrantLock mutex;
+    private CameraController camera;
 
     private static final float nodeRadius = 0.3f;
     private static final float highlightedNodeRadius = 0.5f;
@@ -90,7 +94,7 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
     private static final float DOOR_THICKNESS = 0.2f;
     private static final float DOOR_LENGTH = 1.5f;
     private static final float NODE_CENTER_SCALE_FACTOR = 30f;
-    private static final float SCALE_SPEED = 1.00005f;
+    private static final float ROUTE_PADDING = 400f;
     private static final float LOC_PIN_WIDTH = 160f;
     private static final float LOC_PIN_HEIGHT = 160f;
     private static final float TRIANGLE_HEIGHT = 0.75f;
@@ -98,11 +102,30 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
 
     private final float textSize;
 
-    private boolean[] visited;
+    // static geometry indexed by where it lands on each floor, so a frame only draws what's on screen
+    private BoxGrid corridorGrid, infraGrid, nodeCircleGrid;
+    private int[] corridorEdges, corridorFrom;
+    private int[] visibleItems;
+    private final Matrix screenToWorld = new Matrix();
+    private final float[] viewCorners = new float[8];
+    private final RectF visibleWorld = new RectF();
+
+    private static final int TILE_SIZE = 32;
+    private static final float TILE_MARGIN = 32;
+    private Picture[][] tiles;
+    private float tileOriginX, tileOriginY;
+    private int tileCols, tileRows;
 
     private ArrayList<MapNode> path;
     private int startIndex, endIndex;
     private boolean pathChanged;
+    // the route copied out of its nodes by setPath, so drawing it each frame allocates nothing:
+    // each node's x, y and floor, and routeLines[4k..4k+3] the segment from node k to k+1
+    private float[] routeX = new float[0], routeY = new float[0], routeLines = new float[0];
+    private int[] routeFloor = new int[0];
+    private int routeLength;
+    private final Path arrowPath = new Path();
+    private final float[] routeEndsX = new float[2], routeEndsY = new float[2];
     private boolean isShowCoordNullable;
 
     private Context context;
@@ -124,7 +147,9 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
     private float minX, maxX, minY, maxY;
     private final float initTx, initTy;
 
-    public MapView(MainActivity mainActivity, Map<MapNode, List<MapNode>> graph, Map<MapNode, List<Integer>> nodeToInfra, MapNode startNode, List<Infra> infraList) {
+    // Starts out empty: the map is loaded in the background and handed over with setCampusGraph,
+    // which is enough to draw the corridors, and then setMapData for the rooms and infra.
+    public MapView(MainActivity mainActivity) {
         super(mainActivity);
         scaleGestureDetector = new ScaleGestureDetector(getContext(), new ScaleListener());
         mRotationDetector = new RotationGestureDetector(this);
@@ -139,6 +164,7 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
         worldToScreen.postTranslate(initTx, initTy);
         lastAngle = 0;
         pathChanged = false;
+        arrowPath.setFillType(Path.FillType.EVEN_ODD);
 
         personPin = getResources().getDrawable(R.drawable.ic_baseline_person_pin_circle_24);
         locationPin = getResources().getDrawable(R.drawable.ic_baseline_location_on_24);
@@ -152,9 +178,6 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
         stairsRampUp = getResources().getDrawable(R.drawable.stairs_ramp_up);
         stairsRampDown = getResources().getDrawable(R.drawable.stairs_ramp_down);
 
-        this.graph = graph;
-        this.nodeToInfra = nodeToInfra;
-        this.infraList = infraList;
         this.context = mainActivity;
 
         nodePaint = new Paint();
@@ -184,10 +207,6 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
         arrowPaint.setStyle(Paint.Style.FILL_AND_STROKE);
         arrowPaint.setAntiAlias(true);
 
-        this.startNode = startNode;
-
-        visited = new boolean[graph.keySet().size()];
-
         textSize = pxFromDp(context, TEXT_DP);
 
         textPaint = new Paint(Paint.LINEAR_TEXT_FLAG | Paint.ANTI_ALIAS_FLAG);
@@ -215,11 +234,186 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
         highlightNode = null;
 
         mutex = new ReentrantLock();
+        camera = new CameraController(this, worldToScreen, mutex, displayWidth, displayHeight);
         isShowCoordNullable = false;
 
         minX = minY = Float.POSITIVE_INFINITY;
         maxX = maxY = Float.NEGATIVE_INFINITY;
+    }
+
+    public void setCampusGraph(CampusGraph graph, int floor) {
+        this.graph = graph;
+        this.floor = floor;
+        nodeGrid = new NodeGrid(graph);
+        buildGraphGrids();
         initTranslateBounds();
+        resetTiles();
+        invalidate();
+    }
+
+    public void setMapData(MapData mapData) {
+        if(graph != mapData.getCampusGraph()) setCampusGraph(mapData.getCampusGraph(), floor);
+        nodeList = mapData.getNodeList();
+        nodeToInfra = mapData.getNodeToInfra();
+        infraList = mapData.getInfraList();
+        buildInfraGrid();
+        resetTiles();
+        invalidate();
+    }
+
+    // the static layer (corridors, doors, labels, icons, node circles) never changes between frames,
+    // so each floor is split into square tiles that are recorded into a Picture the first time they
+    // come on screen and replayed under worldToScreen after that
+    private void resetTiles() {
+        tileOriginX = minX - TILE_MARGIN;
+        tileOriginY = minY - TILE_MARGIN;
+        tileCols = (int) Math.ceil((maxX - minX + 2*TILE_MARGIN) / TILE_SIZE);
+        tileRows = (int) Math.ceil((maxY - minY + 2*TILE_MARGIN) / TILE_SIZE);
+        tiles = new Picture[graph.getMaxFloor() - graph.getMinFloor() + 1][tileCols*tileRows];
+    }
+
+    private Picture recordTile(int tx, int ty) {
+        float left = tileOriginX + tx*TILE_SIZE, bottom = tileOriginY + ty*TILE_SIZE;
+        float right = left + TILE_SIZE, top = bottom + TILE_SIZE;
+
+        Picture picture = new Picture();
+        Canvas canvas = picture.beginRecording(TILE_SIZE, TILE_SIZE);
+        canvas.translate(-left, -bottom);
+        canvas.clipRect(left, bottom, right, top);
+        drawStatic(canvas, left, bottom, right, top);
+        picture.endRecording();
+        return picture;
+    }
+
+    private void drawStatic(Canvas canvas, float left, float bottom, float right, float top) {
+        int count = corridorGrid.query(floor, left, bottom, right, top, visibleItems);
+        for(int i = 0; i < count; i++) drawCorridor(canvas, corridorEdges[visibleItems[i]], corridorFrom[visibleItems[i]]);
+
+        // rooms and infra only show up once the whole map has loaded
+        if(infraGrid != null) {
+            count = infraGrid.query(floor, left, bottom, right, top, visibleItems);
+            for(int i = 0; i < count; i++) drawInfraAt(canvas, infraList.get(visibleItems[i]));
+        }
+
+        count = nodeCircleGrid.query(floor, left, bottom, right, top, visibleItems);
+        for(int i = 0; i < count; i++) {
+            int n = visibleItems[i];
+            canvas.drawCircle((float)graph.getX(n), (float)graph.getY(n), nodeRadius, nodePaint);
+        }
+    }
+
+    private void drawTiles(Canvas canvas) {
+        RectF view = computeVisibleWorld();
+
+        // hardware canvases only play back Pictures from M on, just draw what's visible before that
+        if(Build.VERSION.SDK_INT < Build.VERSION_CODES.M && canvas.isHardwareAccelerated()) {
+            drawStatic(canvas, view.left, view.top, view.right, view.bottom);
+            return;
+        }
+
+        Picture[] floorTiles = tiles[floor - graph.getMinFloor()];
+
+        int tx0 = Math.max(0, (int) Math.floor((view.left - tileOriginX) / TILE_SIZE));
+        int tx1 = Math.min(tileCols-1, (int) Math.floor((view.right - tileOriginX) / TILE_SIZE));
+        int ty0 = Math.max(0, (int) Math.floor((view.top - tileOriginY) / TILE_SIZE));
+        int ty1 = Math.min(tileRows-1, (int) Math.floor((view.bottom - tileOriginY) / TILE_SIZE));
+        for(int ty = ty0; ty <= ty1; ty++) {
+            for(int tx = tx0; tx <= tx1; tx++) {
+                int t = ty*tileCols + tx;
+                if(floorTiles[t] == null) floorTiles[t] = recordTile(tx, ty);
+
+                canvas.save();
+                canvas.translate(tileOriginX + tx*TILE_SIZE, tileOriginY + ty*TILE_SIZE);
+                canvas.drawPicture(floorTiles[t]);
+                canvas.restore();
+            }
+        }
+    }
+
+    private void buildGraphGrids() {
+        int n = graph.getNodeCount();
+
+        // each corridor once, from its lower numbered end
+        int corridors = 0;
+        for(int u = 0; u < n; u++) {
+            for(int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+                if(graph.hasFlag(e, CampusGraph.SAME_FLOOR) && u < graph.getNeighbour(e)) corridors++;
+            }
+        }
+
+        corridorEdges = new int[corridors];
+        corridorFrom = new int[corridors];
+        int[] floors = new int[corridors];
+        float[] left = new float[corridors], bottom = new float[corridors], right = new float[corridors], top = new float[corridors];
+        int i = 0;
+        for(int u = 0; u < n; u++) {
+            for(int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+                int v = graph.getNeighbour(e);
+                if(!graph.hasFlag(e, CampusGraph.SAME_FLOOR) || u >= v) continue;
+
+                corridorEdges[i] = e;
+                corridorFrom[i] = u;
+                floors[i] = graph.getFloor(u);
+                left[i] = (float) Math.min(graph.getX(u), graph.getX(v)) - pathWidth/2;
+                right[i] = (float) Math.max(graph.getX(u), graph.getX(v)) + pathWidth/2;
+                bottom[i] = (float) Math.min(graph.getY(u), graph.getY(v)) - pathWidth/2;
+                top[i] = (float) Math.max(graph.getY(u), graph.getY(v)) + pathWidth/2;
+                i++;
+            }
+        }
+        corridorGrid = new BoxGrid(floors, left, bottom, right, top);
+
+        floors = new int[n];
+        left = new float[n];
+        bottom = new float[n];
+        right = new float[n];
+        top = new float[n];
+        for(int u = 0; u < n; u++) {
+            floors[u] = graph.getFloor(u);
+            left[u] = (float) graph.getX(u) - highlightedNodeRadius;
+            right[u] = (float) graph.getX(u) + highlightedNodeRadius;
+            bottom[u] = (float) graph.getY(u) - highlightedNodeRadius;
+            top[u] = (float) graph.getY(u) + highlightedNodeRadius;
+        }
+        nodeCircleGrid = new BoxGrid(floors, left, bottom, right, top);
+
+        visibleItems = new int[Math.max(corridors, n)];
+    }
+
+    private void buildInfraGrid() {
+        int count = infraList.size();
+        int[] floors = new int[count];
+        float[] left = new float[count], bottom = new float[count], right = new float[count], top = new float[count];
+        for(int id = 0; id < count; id++) {
+            Infra infra = infraList.get(id);
+            int u = infra.getMapNode().getId();
+
+            // labels are rotated with the door, so allow the full reach in every direction
+            float reach = pathWidth/2 + DOOR_THICKNESS + INFRA_DOOR_ICON_CLEARANCE*1.5f
+                    + Math.max(infra.getName().length()*textSize*CHAR_FACTOR + 1, Math.max(INFRA_ICON_WIDTH, DOOR_LENGTH));
+            floors[id] = graph.getFloor(u);
+            left[id] = (float) graph.getX(u) - reach;
+            right[id] = (float) graph.getX(u) + reach;
+            bottom[id] = (float) graph.getY(u) - reach;
+            top[id] = (float) graph.getY(u) + reach;
+        }
+        infraGrid = new BoxGrid(floors, left, bottom, right, top);
+
+        if(visibleItems.length < count) visibleItems = new int[count];
+    }
+
+    // bounds of the world area covered by the screen under the current worldToScreen
+    private RectF computeVisibleWorld() {
+        worldToScreen.invert(screenToWorld);
+        viewCorners[0] = 0;            viewCorners[1] = 0;
+        viewCorners[2] = displayWidth; viewCorners[3] = 0;
+        viewCorners[4] = 0;            viewCorners[5] = displayHeight;
+        viewCorners[6] = displayWidth; viewCorners[7] = displayHeight;
+        screenToWorld.mapPoints(viewCorners);
+
+        visibleWorld.set(viewCorners[0], viewCorners[1], viewCorners[0], viewCorners[1]);
+        for(int i = 2; i < 8; i += 2) visibleWorld.union(viewCorners[i], viewCorners[i+1]);
+        return visibleWorld;
     }
 
     // below method is use to generate px from DP.
@@ -233,27 +427,20 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
     public boolean onTouchEvent(MotionEvent event) {
         switch (event.getAction() & MotionEvent.ACTION_MASK) {
             case MotionEvent.ACTION_DOWN:
+                camera.cancel();
                 startFingerX = event.getX();
                 startFingerY = event.getY();
 
                 isShowCoordNullable = true;
 
+                if(nodeList == null) break;
+
                 float[] sc = {startFingerX, startFingerY, 1};
                 getWorldCoord(sc);
 
-                double minDist = Double.POSITIVE_INFINITY;
-                MapNode x = null;
-                for(MapNode n : graph.keySet()) {
-                    if(n.getPosition().getZ() != startNode.getPosition().getZ()) continue;
-                    double d = Math.sqrt(Math.pow(n.getPosition().getX()-sc[0], 2) + Math.pow(n.getPosition().getY()-sc[1], 2));
-                    if(d < minDist) {
-                        minDist = d;
-                        x = n;
-                    }
-                }
-
-                if (minDist < SHOW_COORD_DIST) {
-                    setShowCoordNode(x);
+                int x = nodeGrid.nearest(sc[0], sc[1], floor, SHOW_COORD_DIST);
+                if (x != -1) {
+                    setShowCoordNode(nodeList.get(x));
                     isShowCoordNullable = false;
                 }
 
@@ -281,8 +468,10 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
                     float newWorldAtCenterX = worldCoordsAtCenter[0] + values[0] * translateX;
                     float newWorldAtCenterY = worldCoordsAtCenter[1] + values[4] * translateY;
 
-                    newWorldAtCenterX = Math.max(minX, Math.min(maxX, newWorldAtCenterX));
-                    newWorldAtCenterY = Math.max(minY, Math.min(maxY, newWorldAtCenterY));
+                    if(graph != null) {
+                        newWorldAtCenterX = Math.max(minX, Math.min(maxX, newWorldAtCenterX));
+                        newWorldAtCenterY = Math.max(minY, Math.min(maxY, newWorldAtCenterY));
+                    }
 
                     float[] newScreenCoordinates = {newWorldAtCenterX, newWorldAtCenterY, 1};
                     getScreenCoords(newScreenCoordinates);
@@ -326,109 +515,98 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
         canvas.restore();
     }
 
-    private void drawConnections(Canvas canvas, boolean[] visited, MapNode node) {
-        if(visited[node.getId()]) return;
-
-        visited[node.getId()] = true;
-
-        List<Integer> infraIdList = nodeToInfra.get(node);
+    // door, label or icon of one infra, drawn around the node it sits on
+    private void drawInfraAt(Canvas canvas, Infra infra) {
+        int u = infra.getMapNode().getId();
 
-        if(infraIdList != null) {
-            for(int id : infraIdList) {
-                Infra infra = infraList.get(id);
-//                if(infra.getInfratype() != Infratype.Room) continue;
+        int textLength = infra.getName().length();
+        float rotateAngle = 0;
+        float dx = 0, dy = 0;
+        float dr = 0, dt = 0, dl = 0, db = 0;
 
-                int textLength = infra.getName().length();
-                float rotateAngle = 0;
-                float dx = 0, dy = 0;
-                float dr = 0, dt = 0, dl = 0, db = 0;
+        float ix = 0, iy = 0;
+        if(infra.getOrientation() == Orientation.Down) {
+            rotateAngle = -90;
+            dx = -pathWidth/2 - textLength*textSize*CHAR_FACTOR - 0.3f;
+            dy = 0.35f*textSize;
 
-                float ix = 0, iy = 0;
-                if(infra.getOrientation() == Orientation.Down) {
-                    rotateAngle = -90;
-                    dx = -pathWidth/2 - textLength*textSize*CHAR_FACTOR - 0.3f;
-                    dy = 0.35f*textSize;
+            dl = -pathWidth/2 - DOOR_THICKNESS;
+            dr = -pathWidth/2;
+            dt = DOOR_LENGTH/2;
+            db = -DOOR_LENGTH/2;
 
-                    dl = -pathWidth/2 - DOOR_THICKNESS;
-                    dr = -pathWidth/2;
-                    dt = DOOR_LENGTH/2;
-                    db = -DOOR_LENGTH/2;
-
-                    ix = -INFRA_ICON_WIDTH/2;
-                    iy = pathWidth/2 + DOOR_THICKNESS + INFRA_DOOR_ICON_CLEARANCE;
-                }
-                else if(infra.getOrientation() == Orientation.Up) {
-                    rotateAngle = -90;
-                    dx = pathWidth/2 + 0.6f;
-                    dy = 0.35f*textSize;
-
-                    dl = pathWidth/2 + DOOR_THICKNESS;
-                    dr = pathWidth/2;
-                    dt = DOOR_LENGTH/2;
-                    db = -DOOR_LENGTH/2;
-
-                    ix = -INFRA_ICON_WIDTH/2;
-                    iy = -pathWidth - DOOR_THICKNESS - INFRA_DOOR_ICON_CLEARANCE;
-                }
-                else if(infra.getOrientation() == Orientation.Left) {
-                    rotateAngle = 0;
-                    dx = -pathWidth/2 - textLength*textSize*CHAR_FACTOR;
-                    dy = 0.35f*textSize;
-
-                    dl = -pathWidth/2 - DOOR_THICKNESS;
-                    dr = -pathWidth/2;
-                    dt = DOOR_LENGTH/2;
-                    db = -DOOR_LENGTH/2;
-
-                    ix = -pathWidth - DOOR_THICKNESS - INFRA_DOOR_ICON_CLEARANCE*1.5f;
-                    iy = -INFRA_ICON_HEIGHT/2;
-                }
-                else if(infra.getOrientation() == Orientation.Right) {
-                    rotateAngle =  0;
-                    dx = pathWidth/2 + 0.5f;
-                    dy = 0.35f*textSize;
-
-                    dl = pathWidth/2;
-                    dr = pathWidth/2 + DOOR_THICKNESS;
-                    dt = DOOR_LENGTH/2;
-                    db = -DOOR_LENGTH/2;
-
-                    ix = pathWidth/2 + DOOR_THICKNESS + INFRA_DOOR_ICON_CLEARANCE;
-                    iy = -INFRA_ICON_HEIGHT/2;
-                }
-
-                canvas.translate((float) node.getPosition().getX(), (float) node.getPosition().getY());
-                canvas.scale(1, -1);
-
-                if(infra.getInfratype() == Infratype.Room) {
-                    canvas.rotate(rotateAngle);
-                    canvas.drawText(infra.getName(), dx, dy, textPaint);
-                    canvas.rotate(-rotateAngle);
-                }
-                else {
-                    drawInfra(infra, canvas, ix, iy);
-                }
+            ix = -INFRA_ICON_WIDTH/2;
+            iy = pathWidth/2 + DOOR_THICKNESS + INFRA_DOOR_ICON_CLEARANCE;
+        }
+        else if(infra.getOrientation() == Orientation.Up) {
+            rotateAngle = -90;
+            dx = pathWidth/2 + 0.6f;
+            dy = 0.35f*textSize;
+
+            dl = pathWidth/2 + DOOR_THICKNESS;
+            dr = pathWidth/2;
+            dt = DOOR_LENGTH/2;
+            db = -DOOR_LENGTH/2;
+
+            ix = -INFRA_ICON_WIDTH/2;
+            iy = -pathWidth - DOOR_THICKNESS - INFRA_DOOR_ICON_CLEARANCE;
+        }
+        else if(infra.getOrientation() == Orientation.Left) {
+            rotateAngle = 0;
+            dx = -pathWidth/2 - textLength*textSize*CHAR_FACTOR;
+            dy = 0.35f*textSize;
+
+            dl = -pathWidth/2 - DOOR_THICKNESS;
+            dr = -pathWidth/2;
+            dt = DOOR_LENGTH/2;
+            db = -DOOR_LENGTH/2;
+
+            ix = -pathWidth - DOOR_THICKNESS - INFRA_DOOR_ICON_CLEARANCE*1.5f;
+            iy = -INFRA_ICON_HEIGHT/2;
+        }
+        else if(infra.getOrientation() == Orientation.Right) {
+            rotateAngle =  0;
+            dx = pathWidth/2 + 0.5f;
+            dy = 0.35f*textSize;
+
+            dl = pathWidth/2;
+            dr = pathWidth/2 + DOOR_THICKNESS;
+            dt = DOOR_LENGTH/2;
+            db = -DOOR_LENGTH/2;
+
+            ix = pathWidth/2 + DOOR_THICKNESS + INFRA_DOOR_ICON_CLEARANCE;
+            iy = -INFRA_ICON_HEIGHT/2;
+        }
 
-                canvas.rotate(rotateAngle);
-                canvas.drawRect(dl, dt, dr, db, doorPaint);
-                canvas.rotate(-rotateAngle);
+        canvas.translate((float) graph.getX(u), (float) graph.getY(u));
+        canvas.scale(1, -1);
 
-                canvas.scale(1, -1);
-                canvas.translate((float) -node.getPosition().getX(), (float) -node.getPosition().getY());
-            }
+        if(infra.getInfratype() == Infratype.Room) {
+            canvas.rotate(rotateAngle);
+            canvas.drawText(infra.getName(), dx, dy, textPaint);
+            canvas.rotate(-rotateAngle);
+        }
+        else {
+            drawInfra(infra, canvas, ix, iy);
         }
 
-        for(MapNode n : graph.get(node)) {
-            if(n.getPosition().getZ() != node.getPosition().getZ()) continue;
+        canvas.rotate(rotateAngle);
+        canvas.drawRect(dl, dt, dr, db, doorPaint);
+        canvas.rotate(-rotateAngle);
 
-            float left = (float)Math.min(n.getPosition().getX(), node.getPosition().getX()) - pathWidth / 2;
-            float right = (float)Math.max(n.getPosition().getX(), node.getPosition().getX()) + pathWidth / 2;
-            float top = (float)Math.max(n.getPosition().getY(), node.getPosition().getY()) + pathWidth / 2;
-            float bottom = (float)Math.min(n.getPosition().getY(), node.getPosition().getY()) - pathWidth / 2;
-            canvas.drawRect(left, top, right, bottom, pathPaint);
+        canvas.scale(1, -1);
+        canvas.translate((float) -graph.getX(u), (float) -graph.getY(u));
+    }
 
-            drawConnections(canvas, visited, n);
-        }
+    // corridor rectangle around a same floor edge
+    private void drawCorridor(Canvas canvas, int e, int u) {
+        int n = graph.getNeighbour(e);
+
+        float left = (float)Math.min(graph.getX(n), graph.getX(u)) - pathWidth / 2;
+        float right = (float)Math.max(graph.getX(n), graph.getX(u)) + pathWidth / 2;
+        float top = (float)Math.max(graph.getY(n), graph.getY(u)) + pathWidth / 2;
+        float bottom = (float)Math.min(graph.getY(n), graph.getY(u)) - pathWidth / 2;
+        canvas.drawRect(left, top, right, bottom, pathPaint);
     }
 
     private void drawInfra(Infra infra, Canvas canvas, float ix, float iy) {
@@ -468,155 +646,123 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
 
     public void setPath(ArrayList<MapNode> path) {
         this.path = path;
-        for(MapNode n : path) {
-            System.out.println(n.getId() + ", " + n.getPosition());
+
+        routeLength = path.size();
+        if(routeX.length < routeLength) {
+            routeX = new float[routeLength];
+            routeY = new float[routeLength];
+            routeFloor = new int[routeLength];
+            routeLines = new float[4*routeLength];
         }
+        for(int k = 0; k < routeLength; k++) {
+            Vec3D position = path.get(k).getPosition();
+            routeX[k] = (float) position.getX();
+            routeY[k] = (float) position.getY();
+            routeFloor[k] = (int) position.getZ();
+            if(k > 0) {
+                routeLines[4*k-4] = routeX[k-1];
+                routeLines[4*k-3] = routeY[k-1];
+                routeLines[4*k-2] = routeX[k];
+                routeLines[4*k-1] = routeY[k];
+            }
+        }
+
         pathChanged = true;
         invalidate();
     }
 
-    private void drawTriangle(Vec3D pos, Orientation orientation, Canvas canvas) {
-        Vec3D pos1 = new Vec3D(pos.getX(), pos.getY(), 0);
-        Vec3D pos2, middlePos, pos3;
-        pos2 = middlePos = pos3 = null;
+    // arrow pointing along the route with its tip at x, y, drawn with the one reused arrowPath
+    private void drawTriangle(float x, float y, Orientation orientation, Canvas canvas) {
+        float x2, y2, xm, ym, x3, y3;
         switch(orientation) {
             case Up:
-                pos2 = pos1.add(new Vec3D(TRIANGLE_WIDTH/2, -TRIANGLE_HEIGHT, 0));
-                middlePos = pos2.add(new Vec3D(-TRIANGLE_WIDTH/2, TRIANGLE_HEIGHT/3, 0));
-                pos3 = middlePos.add(new Vec3D(-TRIANGLE_WIDTH/2, -TRIANGLE_HEIGHT/3, 0));
+                x2 = x + TRIANGLE_WIDTH/2;  y2 = y - TRIANGLE_HEIGHT;
+                xm = x2 - TRIANGLE_WIDTH/2; ym = y2 + TRIANGLE_HEIGHT/3;
+                x3 = xm - TRIANGLE_WIDTH/2; y3 = ym - TRIANGLE_HEIGHT/3;
                 break;
             case Left:
-                pos2 = pos1.add(new Vec3D(TRIANGLE_HEIGHT, TRIANGLE_WIDTH/2, 0));
-                middlePos = pos2.add(new Vec3D(-TRIANGLE_HEIGHT/3, -TRIANGLE_WIDTH/2, 0));
-                pos3 = middlePos.add(new Vec3D(TRIANGLE_HEIGHT/3, -TRIANGLE_WIDTH/2, 0));
+                x2 = x + TRIANGLE_HEIGHT;   y2 = y + TRIANGLE_WIDTH/2;
+                xm = x2 - TRIANGLE_HEIGHT/3; ym = y2 - TRIANGLE_WIDTH/2;
+                x3 = xm + TRIANGLE_HEIGHT/3; y3 = ym - TRIANGLE_WIDTH/2;
                 break;
             case Right:
-                pos2 = pos1.add(new Vec3D(-TRIANGLE_HEIGHT, TRIANGLE_WIDTH/2, 0));
-                middlePos = pos2.add(new Vec3D(TRIANGLE_HEIGHT/3, -TRIANGLE_WIDTH/2, 0));
-                pos3 = middlePos.add(new Vec3D(-TRIANGLE_HEIGHT/3, -TRIANGLE_WIDTH/2, 0));
+                x2 = x - TRIANGLE_HEIGHT;   y2 = y + TRIANGLE_WIDTH/2;
+                xm = x2 + TRIANGLE_HEIGHT/3; ym = y2 - TRIANGLE_WIDTH/2;
+                x3 = xm - TRIANGLE_HEIGHT/3; y3 = ym - TRIANGLE_WIDTH/2;
                 break;
-            case Down:
-                pos2 = pos1.add(new Vec3D(TRIANGLE_WIDTH/2, TRIANGLE_HEIGHT, 0));
-                middlePos = pos2.add(new Vec3D(-TRIANGLE_WIDTH/2, -TRIANGLE_HEIGHT/3, 0));
-                pos3 = middlePos.add(new Vec3D(-TRIANGLE_WIDTH/2, TRIANGLE_HEIGHT/3, 0));
+            default:
+                x2 = x + TRIANGLE_WIDTH/2;  y2 = y + TRIANGLE_HEIGHT;
+                xm = x2 - TRIANGLE_WIDTH/2; ym = y2 - TRIANGLE_HEIGHT/3;
+                x3 = xm - TRIANGLE_WIDTH/2; y3 = ym + TRIANGLE_HEIGHT/3;
         }
 
-        Path path = new Path();
-        path.setFillType(Path.FillType.EVEN_ODD);
-        path.moveTo((float) pos1.getX(), (float) pos1.getY());
-        path.lineTo((float) pos2.getX(), (float) pos2.getY());
-        path.lineTo((float) middlePos.getX(), (float) middlePos.getY());
-        path.lineTo((float) pos3.getX(), (float) pos3.getY());
-        path.lineTo((float) pos1.getX(), (float) pos1.getY());
-        path.close();
+        arrowPath.rewind();
+        arrowPath.moveTo(x, y);
+        arrowPath.lineTo(x2, y2);
+        arrowPath.lineTo(xm, ym);
+        arrowPath.lineTo(x3, y3);
+        arrowPath.lineTo(x, y);
+        arrowPath.close();
 
-        canvas.drawPath(path, arrowPaint);
-
-//        canvas.translate(-(float) (displayWidth-200), -(float) (displayHeight-400));
+        canvas.drawPath(arrowPath, arrowPaint);
     }
 
+    // the stretch of the route on this floor, from its first node there on
     private void drawPath(Canvas canvas) {
-        int floor = (int)startNode.getPosition().getZ();
-        MapNode n1 = null;
-        int i = 0;
-        do {
-            if(i >= path.size()) break;
-            n1 = path.get(i);
-            i++;
-        } while((int)n1.getPosition().getZ() != floor);
-
-        startIndex = i-1;
-
-        int oldI = i;
-        MapNode oldN1 = n1;
-        while(i < path.size()) {
-            MapNode n2 = path.get(i);
-            if((int)n2.getPosition().getZ() != floor) break;
-
-            canvas.drawLine(
-                    (float)n1.getPosition().getX(),
-                    (float)n1.getPosition().getY(),
-                    (float)n2.getPosition().getX(),
-                    (float)n2.getPosition().getY(), linePaint);
+        int start = 0;
+        while(start < routeLength-1 && routeFloor[start] != floor) start++;
+        int end = start;
+        while(end+1 < routeLength && routeFloor[end+1] == floor) end++;
+
+        startIndex = start;
+        endIndex = end;
+        if(end == start) return;
+
+        canvas.drawLines(routeLines, 4*start, 4*(end-start), linePaint);
 
+        for(int k = start; k < end; k++) {
             Orientation orientation;
-            if(n1.getPosition().getX() == n2.getPosition().getX()) {
-                if(n1.getPosition().getY() > n2.getPosition().getY()) orientation = Orientation.Down;
+            if(routeX[k] == routeX[k+1]) {
+                if(routeY[k] > routeY[k+1]) orientation = Orientation.Down;
                 else orientation = Orientation.Up;
             }
             else {
-                if(n1.getPosition().getX() > n2.getPosition().getX()) orientation = Orientation.Left;
+                if(routeX[k] > routeX[k+1]) orientation = Orientation.Left;
                 else orientation = Orientation.Right;
             }
 
-            drawTriangle(n1.getPosition().add(n2.getPosition()).divide(2), orientation, canvas);
-
-            n1 = n2;
-            i++;
+            drawTriangle((routeX[k] + routeX[k+1])/2, (routeY[k] + routeY[k+1])/2, orientation, canvas);
         }
 
-        i = oldI;
-        n1 = oldN1;
-        while(i < path.size()) {
-            MapNode n2 = path.get(i);
-            if((int)n2.getPosition().getZ() != floor) break;
-
-            canvas.drawCircle((float) n1.getPosition().getX(), (float) n1.getPosition().getY(), highlightedNodeRadius, nodePaint);
-            canvas.drawCircle((float) n2.getPosition().getX(), (float) n2.getPosition().getY(), highlightedNodeRadius, nodePaint);
-
-            n1 = n2;
-            i++;
-        }
-
-        endIndex = i-1;
-    }
-
-    private void drawLines(Canvas canvas, boolean[] visited, MapNode node) {
-        if(visited[node.getId()]) return;
-
-        visited[node.getId()] = true;
-
-        for(MapNode n : graph.get(node)) {
-            if(n.getPosition().getZ() != node.getPosition().getZ()) continue;
-
-            canvas.drawLine((float)node.getPosition().getX(), (float)node.getPosition().getY(),
-                    (float)n.getPosition().getX(), (float)n.getPosition().getY(), linePaint);
-
-            drawLines(canvas, visited, n);
+        for(int k = start; k <= end; k++) {
+            canvas.drawCircle(routeX[k], routeY[k], highlightedNodeRadius, nodePaint);
         }
     }
 
     private void drawStuff(Canvas canvas) {
         canvas.drawPaint(bgPaint);
+        if(graph == null) return;
 
-        Arrays.fill(visited, false);
-        drawConnections(canvas, visited, startNode);
-
-//        Arrays.fill(visited, false);
-//        drawLines(canvas, visited, startNode);
-
-        for(MapNode node : graph.keySet()) {
-            if(node.getPosition().getZ() != startNode.getPosition().getZ()) continue;
-            canvas.drawCircle((float)node.getPosition().getX(), (float)node.getPosition().getY(), nodeRadius, nodePaint);
-        }
+        drawTiles(canvas);
 
-        if(path != null && path.size() >= 2) {
+        // path is the activity's list, which it also clears and refills in place: only draw it while it
+        // still matches what setPath copied
+        if(path != null && path.size() >= 2 && path.size() == routeLength) {
             drawPath(canvas);
             if(pathChanged) {
-                centerWorldCoords(path.get(startIndex).getPosition().add(path.get(endIndex).getPosition()).divide(2));
-                zoomOutTillBothPinsVisible();
+                frameRoute(path.get(startIndex), path.get(endIndex));
                 pathChanged = false;
             }
 
             drawPinAtNode(locationPin, path.get(path.size()-1), canvas);
             drawPinAtNode(startPin, path.get(0), canvas);
-            if(middleNode != null && middleNode.getPosition().getZ() == startNode.getPosition().getZ()) {
+            if(middleNode != null && (int) middleNode.getPosition().getZ() == floor) {
                 canvas.drawCircle((float)middleNode.getPosition().getX(), (float)middleNode.getPosition().getY(), nodeRadius, middleNodePaint);
                 drawPinAtNode(middlePin, middleNode, canvas);
             }
         }
 
-        if(highlightNode != null && highlightNode.getPosition().getZ() == startNode.getPosition().getZ()) {
+        if(highlightNode != null && (int) highlightNode.getPosition().getZ() == floor) {
             canvas.drawCircle((float)highlightNode.getPosition().getX(), (float)highlightNode.getPosition().getY(), nodeRadius, highlightNodePaint);
 
             drawPinAtNode(personPin, highlightNode, canvas);
@@ -624,7 +770,7 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
     }
 
     private void drawPinAtNode(Drawable drawable, MapNode node, Canvas canvas) {
-        if(node.getPosition().getZ() == startNode.getPosition().getZ()) {
+        if((int) node.getPosition().getZ() == floor) {
             drawPin(drawable,
                     node.getPosition().getX() - LOC_PIN_WIDTH / 2,
                     -(node.getPosition().getY() + LOC_PIN_HEIGHT),
@@ -642,9 +788,6 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
         float width = (float) (right-left);
         float height = (float) (bottom-top);
 
-        mutex.lock();
-        worldToScreen.getValues(values);
-
         cx *= values[0];
         bottom *= -values[4];
 
@@ -657,25 +800,19 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
     }
 
     float[] values = new float[9];
-
-    private boolean isWorldCoordinateOnScreen(Vec3D v, int padding) {
-        if(v.getZ() != startNode.getPosition().getZ()) return false;
-
-        float[] sc = {(float)v.getX(), (float)v.getY(), 1};
-        getScreenCoords(sc);
-
-        return sc[0] >= padding && sc[0] <= displayWidth-padding && sc[1] >= padding && sc[1] <= displayHeight-padding;
-    }
-
-    private void zoomOutTillBothPinsVisible() {
-        MapNode n1 = path.get(startIndex);
-        MapNode n2 = path.get(endIndex);
-
-        do {
-            mutex.lock();
-            worldToScreen.postScale(1/SCALE_SPEED, 1/SCALE_SPEED, displayWidth/2, displayHeight/2);
-            mutex.unlock();
-        } while(!isWorldCoordinateOnScreen(n1.getPosition(), 400) || !isWorldCoordinateOnScreen(n2.getPosition(), 400));
+    private final float[] inverseValues = new float[9];
+
+    // centre between the two ends of the route on this floor and zoom out just enough to show both
+    private void frameRoute(MapNode n1, MapNode n2) {
+        float cx = (float) (n1.getPosition().getX() + n2.getPosition().getX())/2;
+        float cy = (float) (n1.getPosition().getY() + n2.getPosition().getY())/2;
+        routeEndsX[0] = (float) n1.getPosition().getX();
+        routeEndsX[1] = (float) n2.getPosition().getX();
+        routeEndsY[0] = (float) n1.getPosition().getY();
+        routeEndsY[1] = (float) n2.getPosition().getY();
+
+        float fit = CameraFit.fitScale(cx, cy, routeEndsX, routeEndsY, 2, ROUTE_PADDING, ROUTE_PADDING, ROUTE_PADDING, ROUTE_PADDING, displayWidth, displayHeight);
+        camera.animateTo(cx, cy, framingScale(fit));
     }
 
     @Override
@@ -731,42 +868,22 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
     }
 
     void getWorldCoord(float[] sc) {
-        Matrix inverse = new Matrix();
-        assert(worldToScreen.invert(inverse));
-
         mutex.lock();
-        inverse.getValues(values);
-
-        float wc[] = {0, 0, 0};
-        for(int i = 0; i < 3; i++) {
-            for(int j = 0; j < 3; j++) {
-                wc[i] += values[3*i + j] * sc[j];
-            }
-        }
-
-        sc[0] = wc[0]/wc[2];
-        sc[1] = wc[1]/wc[2];
+        worldToScreen.getValues(values);
+        MatrixMath.invert(values, inverseValues);
+        MatrixMath.mapPoint(inverseValues, sc);
         mutex.unlock();
     }
 
     void getScreenCoords(float[] wc) {
         mutex.lock();
         worldToScreen.getValues(values);
-
-        float sc[] = {0, 0, 0};
-        for(int i = 0; i < 3; i++) {
-            for(int j = 0; j < 3; j++) {
-                sc[i] += values[3*i + j] * wc[j];
-            }
-        }
-
-        wc[0] = sc[0]/sc[2];
-        wc[1] = sc[1]/sc[2];
+        MatrixMath.mapPoint(values, wc);
         mutex.unlock();
     }
 
-    public void setStartNode(MapNode startNode) {
-        this.startNode = startNode;
+    public void setFloor(int floor) {
+        this.floor = floor;
         showCoordNode = null;
         invalidate();
     }
@@ -792,6 +909,8 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
 
     public MapNode getMiddleNode() { return middleNode; }
 
+    public MapNode getHighlightNode() { return highlightNode; }
+
     public void setHighlightNode(MapNode highlightNode) {
         if(highlightNode != this.highlightNode) {
             this.highlightNode = highlightNode;
@@ -800,82 +919,36 @@ public class MapView extends View implements RotationGestureDetector.OnRotationG
     }
 
     public void centerAndZoomOutWhileMiddlePinNotFullyVisible() {
-        centerWorldCoords(highlightNode.getPosition().add(middleNode.getPosition()).divide(2));
-
-        mutex.lock();
-        do {
-            worldToScreen.postScale(1/SCALE_SPEED, 1/SCALE_SPEED, (float)displayWidth/2, (float)displayHeight/2);
-        } while(!isMiddlePinVisible());
-        mutex.unlock();
+        Vec3D center = highlightNode.getPosition().add(middleNode.getPosition()).divide(2);
+        float cx = (float) center.getX(), cy = (float) center.getY();
+        float[] xs = {(float) middleNode.getPosition().getX()};
+        float[] ys = {(float) middleNode.getPosition().getY()};
+
+        // the pin stands on the node, so it needs its full height above it and half its width either side
+        float fit = CameraFit.fitScale(cx, cy, xs, ys, 1, LOC_PIN_WIDTH/2, LOC_PIN_HEIGHT, LOC_PIN_WIDTH/2, 0, displayWidth, displayHeight);
+        camera.animateTo(cx, cy, framingScale(fit));
     }
 
-    private boolean isMiddlePinVisible() {
-        mutex.lock();
-
-        worldToScreen.getValues(values);
-        float left = (float) (middleNode.getPosition().getX() - LOC_PIN_WIDTH/values[0] / 2);
-        float top = (float) (middleNode.getPosition().getY() + LOC_PIN_HEIGHT/values[4]);
-        float right = (float) (middleNode.getPosition().getX() + LOC_PIN_WIDTH/values[0] / 2);
-        float bottom = (float) (middleNode.getPosition().getY());
-
-        RectF worldMiddleRect = new RectF((int) left, (int) bottom, (int) right, (int) top);
-
-        RectF worldScreenRect = new RectF();
-        float[] worldCoords = {0, 0, 1};
-        getWorldCoord(worldCoords);
-        worldScreenRect.left = worldCoords[0];
-        worldScreenRect.top = worldCoords[1];
-        worldCoords[0] = displayWidth;
-        worldCoords[1] = displayHeight;
-        worldCoords[2] = 1;
-        getWorldCoord(worldCoords);
-        worldScreenRect.right = worldCoords[0];
-        worldScreenRect.bottom = worldCoords[1];
-        float tmp = worldScreenRect.top;
-        worldScreenRect.top = worldScreenRect.bottom;
-        worldScreenRect.bottom = tmp;
-
-        mutex.unlock();
-        return worldScreenRect.contains(worldMiddleRect);
+    // zoomed in at least as far as centerWorldCoords would, unless that loses what has to be framed,
+    // but never further out than pinching can go
+    private float framingScale(float fit) {
+        return Math.max(MIN_ZOOM, Math.min(Math.max(camera.getScale(), NODE_CENTER_SCALE_FACTOR), fit));
     }
 
     public void centerWorldCoords(Vec3D worldCoord) {
-        mutex.lock();
-
-        float[] screenCoords = {(float)worldCoord.getX(), (float)worldCoord.getY(), 1};
-        getScreenCoords(screenCoords);
-
-        float dx = -screenCoords[0] + (float)displayWidth/2;
-        float dy = -screenCoords[1] + (float)displayHeight/2;
-
-        worldToScreen.postTranslate(dx, dy);
-
-        do {
-            worldToScreen.postScale(SCALE_SPEED, SCALE_SPEED, (float)displayWidth/2, (float)displayHeight/2);
-            worldToScreen.getValues(values);
-        } while(values[0] < NODE_CENTER_SCALE_FACTOR);
-
-        invalidate();
-        mutex.unlock();
+        camera.animateTo((float) worldCoord.getX(), (float) worldCoord.getY(), Math.max(camera.getScale(), NODE_CENTER_SCALE_FACTOR));
     }
 
-    private void setTranslateBounds(boolean[] visited, MapNode node) {
-        if(visited[node.getId()]) return;
-        visited[node.getId()] = true;
-
-        minX = (float) Math.min(minX, node.getPosition().getX());
-        minY = (float) Math.min(minY, node.getPosition().getY());
-        maxX = (float) Math.max(maxX, node.getPosition().getX());
-        maxY = (float) Math.max(maxY, node.getPosition().getY());
+    private void initTranslateBounds() {
+        minX = minY = Float.POSITIVE_INFINITY;
+        maxX = maxY = Float.NEGATIVE_INFINITY;
 
-        for(MapNode n : graph.get(node)) {
-            setTranslateBounds(visited, n);
+        for(int u = 0; u < graph.getNodeCount(); u++) {
+            minX = (float) Math.min(minX, graph.getX(u));
+            minY = (float) Math.min(minY, graph.getY(u));
+            maxX = (float) Math.max(maxX, graph.getX(u));
+            maxY = (float) Math.max(maxY, graph.getY(u));
         }
-    }
-
-    private void initTranslateBounds() {
-        Arrays.fill(visited, false);
-        setTranslateBounds(visited, startNode);
         System.out.println("TRANS: " + minX + ", " + minY + ", " + maxX + ", " + maxY);
     }
 }
@@ -6,19 +6,32 @@ import android.view.ViewGroup;
 import android.widget.Button;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
-
 // describes each item in search results recycler view.
-public class SearchResultViewHolder extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+// new result lists are diffed against the shown one off the ui thread, so only rows that changed rebind.
+public class SearchResultViewHolder extends ListAdapter<SearchResult, RecyclerView.ViewHolder> {
+
+    // a row only shows its infra, so the same infra means the same row with the same contents
+    private static final DiffUtil.ItemCallback<SearchResult> DIFF = new DiffUtil.ItemCallback<SearchResult>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull SearchResult oldItem, @NonNull SearchResult newItem) {
+            return oldItem.getHighlightedInfra() == newItem.getHighlightedInfra();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull SearchResult oldItem, @NonNull SearchResult newItem) {
+            return oldItem.getMapNode() == newItem.getMapNode();
+        }
+    };
 
     private final MainActivity mainActivity;
-    private final ArrayList<SearchResult> searchResults;
 
-    public SearchResultViewHolder(MainActivity mainActivity, ArrayList<SearchResult> searchResults, RecyclerView recyclerView) {
+    public SearchResultViewHolder(MainActivity mainActivity, RecyclerView recyclerView) {
+        super(DIFF);
         this.mainActivity = mainActivity;
-        this.searchResults = searchResults;
 
         recyclerView.setAdapter(this);
     }
@@ -32,7 +45,7 @@ public class SearchResultViewHolder extends RecyclerView.Adapter<RecyclerView.Vi
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
         SearchResultHolder searchResultHolder = (SearchResultHolder) holder;
-        SearchResult searchResult = searchResults.get(position);
+        SearchResult searchResult = getItem(position);
         MapNode node = searchResult.getMapNode();
 
         searchResultHolder.resultButton.setText(searchResult.getHighlightedInfra().getName() + ", Floor: " + (int)node.getPosition().getZ());
@@ -51,11 +64,6 @@ public class SearchResultViewHolder extends RecyclerView.Adapter<RecyclerView.Vi
         searchResultHolder.resultButton.setVisibility(View.VISIBLE);
     }
 
-    @Override
-    public int getItemCount() {
-        return searchResults.size();
-    }
-
     private static class SearchResultHolder extends RecyclerView.ViewHolder {
         private final Button resultButton;
 
@@ -0,0 +1,80 @@
+package com.example.bitsmap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+// Scales the shipped campus up for benchmarking by laying copies of nodes.txt out on a square grid.
+// Every copy gets its own reference labels and floor changer indices, and is joined to its left and
+// upper neighbours by a corridor between their entrances, so routes can cross the whole campus.
+public class CampusTiler {
+
+    private static final String ENTRANCE = "H_BLOCK_ENTRANCE";
+    // the shipped map spans about 141 x 141 around its entrance
+    private static final int SPACING = 200;
+    private static final int INDEX_STRIDE = 1000;
+
+    public static String shippedMap() throws IOException {
+        try(InputStream in = CampusTiler.class.getResourceAsStream("/nodes.txt")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while((read = in.read(buffer)) != -1) out.write(buffer, 0, read);
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    public static String tile(String base, int copies) {
+        int cols = (int) Math.ceil(Math.sqrt(copies));
+        String[] lines = base.split("\n");
+        StringBuilder sb = new StringBuilder();
+
+        for(int k = 0; k < copies; k++) {
+            int r = k / cols, c = k % cols;
+            if(c > 0) {
+                sb.append("Goto ").append(ENTRANCE).append(suffix(k-1)).append('\n');
+                sb.append("R ").append(SPACING).append('\n');
+            }
+            else if(r > 0) {
+                sb.append("Goto ").append(ENTRANCE).append(suffix(k-cols)).append('\n');
+                sb.append("D ").append(SPACING).append('\n');
+            }
+
+            for(String line : lines) sb.append(rename(line.trim(), k)).append('\n');
+        }
+
+        // the corridors up to the row above, for every copy that wasn't reached that way
+        for(int k = cols; k < copies; k++) {
+            if(k % cols == 0) continue;
+            sb.append("Goto ").append(ENTRANCE).append(suffix(k)).append('\n');
+            sb.append("Connect ").append(ENTRANCE).append(suffix(k-cols)).append('\n');
+        }
+
+        return sb.toString();
+    }
+
+    private static String suffix(int k) {
+        return k == 0? "" : "_" + k;
+    }
+
+    private static String rename(String line, int k) {
+        if(k == 0 || line.isEmpty()) return line;
+
+        if(line.endsWith(":")) return line.substring(0, line.length()-1) + suffix(k) + ":";
+        if(line.startsWith("Connect ") || line.startsWith("Goto ")) return line + suffix(k);
+
+        String[] params = line.split(" ");
+        // CLIMB <Up|Down> <Stairs|Lift> <index>
+        if(params[0].equals("CLIMB")) {
+            params[3] = String.valueOf(Integer.parseInt(params[3]) + k*INDEX_STRIDE);
+            return String.join(" ", params);
+        }
+        // <direction> <Stairs|Lift> <index> <Up|Down> <Ramp|NoRamp> <dx> <dy>
+        if(params.length > 2 && (params[1].equals("Stairs") || params[1].equals("Lift"))) {
+            params[2] = String.valueOf(Integer.parseInt(params[2]) + k*INDEX_STRIDE);
+            return String.join(" ", params);
+        }
+        return line;
+    }
+}
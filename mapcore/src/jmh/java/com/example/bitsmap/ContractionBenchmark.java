@@ -0,0 +1,100 @@
+package com.example.bitsmap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// contraction hierarchy against plain Dijkstra on generated campuses, 6 floors per block.
+// preprocess is timed once per iteration; one op of the query benchmarks is QUERIES random routes.
+// Shortcut count and memory overhead are printed by setup.
+@State(Scope.Benchmark)
+public class ContractionBenchmark {
+
+    private static final int QUERIES = 1000;
+
+    @Param({"10", "100"})
+    public int blocks;
+
+    @Param({"false", "true"})
+    public boolean usingWheelChair;
+
+    private List<MapNode> nodeList;
+    private RoutingProfile.Weights weights;
+    private PathFinder pathFinder;
+    private ContractionHierarchy hierarchy;
+    private MapNode[] sources, targets;
+    private List<MapNode> path;
+
+    @Setup
+    public void setup() {
+        CampusGenerator generator = new CampusGenerator(blocks, 6, 7);
+        generator.setSpineSteps(20);
+        generator.setCorridorsPerFloor(5);
+        String text = generator.generate();
+        MapData mapData = new MapParser().parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+
+        nodeList = mapData.getNodeList();
+        CampusGraph graph = mapData.getCampusGraph();
+        weights = (usingWheelChair? RoutingProfile.wheelchair() : RoutingProfile.walking()).weigh(graph);
+        pathFinder = new PathFinder(nodeList, graph);
+        pathFinder.setUseAStar(true);
+
+        long start = System.nanoTime();
+        hierarchy = new ContractionHierarchy(nodeList, weights);
+        System.out.println("\n" + nodeList.size() + " nodes, " + graph.getEdgeCount() + " edges: " + hierarchy.getShortcutCount()
+                + " shortcuts, " + hierarchy.getFootprintBytes() + " bytes over the graph's " + graph.getFootprintBytes()
+                + ", built in " + (System.nanoTime() - start) / 1000000 + "ms");
+
+        path = new ArrayList<>();
+        sources = new MapNode[QUERIES];
+        targets = new MapNode[QUERIES];
+        Random random = new Random(42);
+        for(int i = 0; i < QUERIES; i++) {
+            sources[i] = nodeList.get(random.nextInt(nodeList.size()));
+            targets[i] = nodeList.get(random.nextInt(nodeList.size()));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public ContractionHierarchy preprocess() {
+        return new ContractionHierarchy(nodeList, weights);
+    }
+
+    @Benchmark
+    public double aStarQueries() {
+        double total = 0;
+        for(int i = 0; i < QUERIES; i++) {
+            double d = pathFinder.findPath(sources[i], targets[i], weights, path);
+            if(d < Double.POSITIVE_INFINITY) total += d;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double contractedQueries() {
+        double total = 0;
+        for(int i = 0; i < QUERIES; i++) {
+            double d = hierarchy.findPath(sources[i], targets[i], path);
+            if(d < Double.POSITIVE_INFINITY) total += d;
+        }
+        return total;
+    }
+}
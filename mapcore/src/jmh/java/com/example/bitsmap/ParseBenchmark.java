@@ -0,0 +1,42 @@
+package com.example.bitsmap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// cold load of a campus, from the nodes.txt text and from the compiled map.bin
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"1", "16", "64"})
+    public int copies;
+
+    private byte[] text;
+    private byte[] blob;
+
+    @Setup
+    public void setup() throws IOException {
+        text = CampusTiler.tile(CampusTiler.shippedMap(), copies).getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MapBlob.write(parseText(), out);
+        blob = out.toByteArray();
+    }
+
+    @Benchmark
+    public MapData parseText() {
+        return new MapParser().parse(new ByteArrayInputStream(text));
+    }
+
+    @Benchmark
+    public MapData readBlob() throws IOException {
+        return MapBlob.read(new ByteArrayInputStream(blob));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.bitsmap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// routes between every pair of infra, walking and on a wheelchair. One op is the whole batch.
+// Past MAX_PAIRS pairs a fixed random sample is used instead, so bigger campuses stay runnable.
+@State(Scope.Benchmark)
+public class RouteBenchmark {
+
+    private static final int MAX_PAIRS = 50000;
+
+    @Param({"1", "16"})
+    public int copies;
+
+    @Param({"false", "true"})
+    public boolean usingWheelChair;
+
+    @Param({"false", "true"})
+    public boolean useAStar;
+
+    @Param({"false", "true"})
+    public boolean bidirectional;
+
+    private PathFinder pathFinder;
+    private RoutingProfile.Weights weights;
+    private MapNode[] sources, targets;
+    private List<MapNode> path;
+
+    @Setup
+    public void setup() throws IOException {
+        String text = CampusTiler.tile(CampusTiler.shippedMap(), copies);
+        MapData mapData = new MapParser().parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+
+        pathFinder = new PathFinder(mapData.getNodeList(), mapData.getCampusGraph());
+        pathFinder.setUseAStar(useAStar);
+        pathFinder.setBidirectional(bidirectional);
+        weights = (usingWheelChair? RoutingProfile.wheelchair() : RoutingProfile.walking()).weigh(mapData.getCampusGraph());
+        path = new ArrayList<>();
+
+        List<Infra> infraList = mapData.getInfraList();
+        long all = (long) infraList.size() * infraList.size();
+        int count = (int) Math.min(all, MAX_PAIRS);
+        sources = new MapNode[count];
+        targets = new MapNode[count];
+        Random random = new Random(42);
+        for(int i = 0; i < count; i++) {
+            int a = all <= MAX_PAIRS? i / infraList.size() : random.nextInt(infraList.size());
+            int b = all <= MAX_PAIRS? i % infraList.size() : random.nextInt(infraList.size());
+            sources[i] = infraList.get(a).getMapNode();
+            targets[i] = infraList.get(b).getMapNode();
+        }
+    }
+
+    @Benchmark
+    public double routeAllPairs() {
+        double total = 0;
+        for(int i = 0; i < sources.length; i++) {
+            double d = pathFinder.findPath(sources[i], targets[i], weights, path);
+            if(d < Double.POSITIVE_INFINITY) total += d;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.bitsmap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// the search box: one op answers each of a handful of typical queries, as typed on every keystroke
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    private static final String[] QUERIES = {"h", "h 1", "h 13", "room", "lift", "washroom", "floor: 2", "zzz"};
+
+    @Param({"1", "16", "64"})
+    public int copies;
+
+    private InfraRanker infraRanker;
+    private List<SearchResult> results;
+
+    @Setup
+    public void setup() throws IOException {
+        String text = CampusTiler.tile(CampusTiler.shippedMap(), copies);
+        MapData mapData = new MapParser().parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+        infraRanker = new InfraRanker(mapData);
+        results = new ArrayList<>();
+    }
+
+    @Benchmark
+    public int search() {
+        int hits = 0;
+        for(String query : QUERIES) {
+            infraRanker.search(query, results);
+            hits += results.size();
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.bitsmap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// MapView's getScreenCoords and getWorldCoord, which run for every touch and drag event
+@State(Scope.Thread)
+public class TransformBenchmark {
+
+    private final float[] worldToScreen = new float[9];
+    private final float[] inverse = new float[9];
+    private final float[] point = new float[3];
+    private float x, y;
+
+    @Setup
+    public void setup() {
+        // MapView's starting camera: 20 px per metre, y flipped, origin low in the middle of a 1080x2160 screen
+        worldToScreen[0] = 20;
+        worldToScreen[2] = 540;
+        worldToScreen[4] = -20;
+        worldToScreen[5] = 1620;
+        worldToScreen[8] = 1;
+        x = 12.5f;
+        y = 40.25f;
+    }
+
+    @Benchmark
+    public float getScreenCoords() {
+        point[0] = x;
+        point[1] = y;
+        point[2] = 1;
+        MatrixMath.mapPoint(worldToScreen, point);
+        return point[0] + point[1];
+    }
+
+    @Benchmark
+    public float getWorldCoord() {
+        point[0] = x;
+        point[1] = y;
+        point[2] = 1;
+        MatrixMath.invert(worldToScreen, inverse);
+        MatrixMath.mapPoint(inverse, point);
+        return point[0] + point[1];
+    }
+}
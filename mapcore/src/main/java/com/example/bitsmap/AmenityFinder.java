@@ -0,0 +1,56 @@
+package com.example.bitsmap;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// "Nearest washroom" and the like: one search from where the user is that stops at the first node
+// with an infra of the wanted type, instead of routing to every one of them and picking the shortest.
+public class AmenityFinder {
+
+    private final List<Infra> infraList;
+    private final Map<MapNode, List<Integer>> nodeToInfra;
+    private final Map<Infratype, boolean[]> nodesWithType = new EnumMap<>(Infratype.class);
+
+    public AmenityFinder(MapData mapData) {
+        infraList = mapData.getInfraList();
+        nodeToInfra = mapData.getNodeToInfra();
+
+        int n = mapData.getNodeList().size();
+        for(Infra infra : infraList) {
+            if(!isAmenity(infra)) continue;
+            boolean[] nodes = nodesWithType.get(infra.getInfratype());
+            if(nodes == null) {
+                nodes = new boolean[n];
+                nodesWithType.put(infra.getInfratype(), nodes);
+            }
+            nodes[infra.getMapNode().getId()] = true;
+        }
+    }
+
+    // The nearest infra of the given type by the profile's costs, with the route to it in path,
+    // or null (and an empty path) if there isn't one within reach.
+    public Infra findNearest(PathFinder pathFinder, MapNode source, Infratype type, RoutingProfile.Weights weights, List<MapNode> path) {
+        boolean[] nodes = nodesWithType.get(type);
+        if(nodes == null) {
+            path.clear();
+            return null;
+        }
+
+        if(pathFinder.findNearest(source, nodes, weights, path) == Double.POSITIVE_INFINITY) return null;
+
+        MapNode node = path.get(path.size()-1);
+        for(int id : nodeToInfra.get(node)) {
+            Infra infra = infraList.get(id);
+            if(infra.getInfratype() == type && isAmenity(infra)) return infra;
+        }
+        return null;
+    }
+
+    // MapParser types every infra word it doesn't know (fire extinguishers, hoses, exits, lounges...)
+    // as DrinkingWater, so only the ones actually named that are water
+    static boolean isAmenity(Infra infra) {
+        if(infra.getInfratype() == Infratype.DrinkingWater) return infra.getName().equals("DrinkingWater");
+        return true;
+    }
+}
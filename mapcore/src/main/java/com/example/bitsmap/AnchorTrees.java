@@ -0,0 +1,204 @@
+package com.example.bitsmap;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+// Shortest path trees from the places most routes start at (the reference points in nodes.txt),
+// one per routing profile, built at compile time next to map.bin. A route from an anchor is read
+// off the tree by following parents back from the destination, no search at all.
+// Each profile is saved with its Weights checksum, trees for weights that have changed since are ignored.
+// Everything is big endian:
+//
+//   int magic 'BSPT', int version, int n
+//   int profiles, per profile: int byteLength, UTF-8 name, long checksum, int anchors,
+//                 per anchor: int node, int parents[n], float costs[n]
+public class AnchorTrees {
+
+    public static final int MAGIC = 0x42535054;
+    public static final int VERSION = 1;
+
+    private static class Tree {
+        final int[] parents;
+        final float[] costs;
+
+        Tree(int[] parents, float[] costs) {
+            this.parents = parents;
+            this.costs = costs;
+        }
+    }
+
+    private static class ProfileTrees {
+        final long checksum;
+        final Map<Integer, Tree> trees = new LinkedHashMap<>();
+
+        ProfileTrees(long checksum) {
+            this.checksum = checksum;
+        }
+    }
+
+    private final int nodeCount;
+    private final Map<String, ProfileTrees> profiles = new LinkedHashMap<>();
+
+    private AnchorTrees(int nodeCount) {
+        this.nodeCount = nodeCount;
+    }
+
+    public static AnchorTrees build(MapData mapData, Collection<MapNode> anchors, List<RoutingProfile.Weights> weightsList) {
+        CampusGraph graph = mapData.getCampusGraph();
+        int n = graph.getNodeCount();
+        AnchorTrees anchorTrees = new AnchorTrees(n);
+        PathFinder pathFinder = new PathFinder(mapData.getNodeList(), graph);
+        double[] dist = new double[n];
+
+        for(RoutingProfile.Weights weights : weightsList) {
+            ProfileTrees profileTrees = new ProfileTrees(weights.getChecksum());
+            for(MapNode anchor : anchors) {
+                if(profileTrees.trees.containsKey(anchor.getId())) continue;
+
+                int[] parents = new int[n];
+                pathFinder.shortestPathTree(anchor, weights, parents, dist);
+                float[] costs = new float[n];
+                for(int v = 0; v < n; v++) costs[v] = (float) dist[v];
+                profileTrees.trees.put(anchor.getId(), new Tree(parents, costs));
+            }
+            anchorTrees.profiles.put(weights.getProfile().getName(), profileTrees);
+        }
+
+        return anchorTrees;
+    }
+
+    // whether routes from source with these weights can be read off a tree
+    public boolean covers(MapNode source, RoutingProfile.Weights weights) {
+        return tree(source, weights) != null;
+    }
+
+    // Fills path with the saved route from source to target and returns its cost, like PathFinder.findPath.
+    // Only valid when covers(source, weights).
+    public double findPath(MapNode source, MapNode target, RoutingProfile.Weights weights, List<MapNode> nodeList, List<MapNode> path) {
+        Tree tree = tree(source, weights);
+        if(tree == null) throw new IllegalArgumentException("No tree from node " + source.getId() + " for " + weights.getProfile().getName());
+
+        path.clear();
+        int t = target.getId();
+        if(t != source.getId() && tree.parents[t] == -1) return Double.POSITIVE_INFINITY;
+
+        for(int v = t; v != -1; v = tree.parents[v]) path.add(nodeList.get(v));
+        for(int i = 0, j = path.size()-1; i < j; i++, j--) {
+            MapNode tmp = path.get(i);
+            path.set(i, path.get(j));
+            path.set(j, tmp);
+        }
+
+        return tree.costs[t];
+    }
+
+    private Tree tree(MapNode source, RoutingProfile.Weights weights) {
+        if(weights.getGraph().getNodeCount() != nodeCount) return null;
+        ProfileTrees profileTrees = profiles.get(weights.getProfile().getName());
+        if(profileTrees == null || profileTrees.checksum != weights.getChecksum()) return null;
+        return profileTrees.trees.get(source.getId());
+    }
+
+    public int getTreeCount() {
+        int count = 0;
+        for(ProfileTrees profileTrees : profiles.values()) count += profileTrees.trees.size();
+        return count;
+    }
+
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(nodeCount);
+
+        data.writeInt(profiles.size());
+        for(Map.Entry<String, ProfileTrees> entry : profiles.entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            data.writeInt(name.length);
+            data.write(name);
+            data.writeLong(entry.getValue().checksum);
+
+            data.writeInt(entry.getValue().trees.size());
+            for(Map.Entry<Integer, Tree> tree : entry.getValue().trees.entrySet()) {
+                data.writeInt(tree.getKey());
+                for(int parent : tree.getValue().parents) data.writeInt(parent);
+                for(float cost : tree.getValue().costs) data.writeFloat(cost);
+            }
+        }
+
+        data.flush();
+    }
+
+    public static AnchorTrees read(InputStream in) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(MapBlob.readFully(in));
+        if(buffer.remaining() < 8 || buffer.getInt() != MAGIC) throw new IOException("Not an anchor tree file");
+        int version = buffer.getInt();
+        if(version != VERSION) throw new IOException("Unsupported anchor tree version " + version);
+
+        int n = buffer.getInt();
+        AnchorTrees anchorTrees = new AnchorTrees(n);
+        int profileCount = buffer.getInt();
+        for(int p = 0; p < profileCount; p++) {
+            byte[] name = new byte[buffer.getInt()];
+            buffer.get(name);
+            ProfileTrees profileTrees = new ProfileTrees(buffer.getLong());
+
+            int anchorCount = buffer.getInt();
+            for(int a = 0; a < anchorCount; a++) {
+                int anchor = buffer.getInt();
+                int[] parents = MapBlob.readInts(buffer, n);
+                float[] costs = new float[n];
+                buffer.asFloatBuffer().get(costs);
+                buffer.position(buffer.position() + 4*n);
+                profileTrees.trees.put(anchor, new Tree(parents, costs));
+            }
+            anchorTrees.profiles.put(new String(name, StandardCharsets.UTF_8), profileTrees);
+        }
+
+        return anchorTrees;
+    }
+
+    // build time entry point, trees from every reference point for the profiles the app offers.
+    // usage: AnchorTrees <nodes.txt> <anchors.bin>
+    public static void main(String[] args) throws IOException {
+        if(args.length != 2) {
+            System.err.println("usage: AnchorTrees <nodes.txt> <anchors.bin>");
+            System.exit(1);
+        }
+
+        MapData mapData;
+        try(InputStream in = new FileInputStream(args[0])) {
+            mapData = new MapParser().parse(in);
+        }
+
+        CampusGraph graph = mapData.getCampusGraph();
+        List<RoutingProfile.Weights> weightsList = new ArrayList<>();
+        weightsList.add(RoutingProfile.walking().weigh(graph));
+        weightsList.add(RoutingProfile.wheelchair().weigh(graph));
+        AnchorTrees anchorTrees = build(mapData, new LinkedHashSet<>(mapData.getReferencePoints().values()), weightsList);
+
+        File output = new File(args[1]);
+        File parent = output.getParentFile();
+        if(parent != null && !parent.isDirectory() && !parent.mkdirs()) throw new IOException("Can't create " + parent);
+
+        try(OutputStream out = new BufferedOutputStream(new FileOutputStream(output))) {
+            anchorTrees.write(out);
+        }
+
+        System.out.println("Built " + anchorTrees.getTreeCount() + " anchor trees into " + output + " (" + output.length() + " bytes)");
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.bitsmap;
+
+import java.util.Arrays;
+
+// Uniform grid over axis aligned boxes, one grid per floor, for finding what overlaps the part of
+// the map that is on screen. Item i is the box left[i]..right[i] x bottom[i]..top[i] on floors[i],
+// and is listed in every cell it overlaps, so queries de-duplicate with a stamp per item.
+public class BoxGrid {
+
+    private static final float MIN_CELL_SIZE = 1;
+
+    private final float[] left, bottom, right, top;
+    private final int minFloor;
+
+    private final float[] originX, originY, cellSize;
+    private final int[] cols, rows;
+    private final int[] cellBase;
+    private final int[] cellStart;
+    private final int[] cellItems;
+
+    private final int[] stamps;
+    private int stamp;
+
+    public BoxGrid(int[] floors, float[] left, float[] bottom, float[] right, float[] top) {
+        this.left = left;
+        this.bottom = bottom;
+        this.right = right;
+        this.top = top;
+        int n = floors.length;
+        stamps = new int[n];
+
+        int lo = Integer.MAX_VALUE, hi = Integer.MIN_VALUE;
+        for(int floor : floors) {
+            lo = Math.min(lo, floor);
+            hi = Math.max(hi, floor);
+        }
+        minFloor = lo;
+        int floorCount = n == 0? 0 : hi - lo + 1;
+
+        originX = new float[floorCount];
+        originY = new float[floorCount];
+        cellSize = new float[floorCount];
+        cols = new int[floorCount];
+        rows = new int[floorCount];
+        cellBase = new int[floorCount+1];
+
+        float[] maxX = new float[floorCount], maxY = new float[floorCount];
+        int[] count = new int[floorCount];
+        Arrays.fill(originX, Float.POSITIVE_INFINITY);
+        Arrays.fill(originY, Float.POSITIVE_INFINITY);
+        Arrays.fill(maxX, Float.NEGATIVE_INFINITY);
+        Arrays.fill(maxY, Float.NEGATIVE_INFINITY);
+        for(int i = 0; i < n; i++) {
+            int f = floors[i] - minFloor;
+            originX[f] = Math.min(originX[f], left[i]);
+            originY[f] = Math.min(originY[f], bottom[i]);
+            maxX[f] = Math.max(maxX[f], right[i]);
+            maxY[f] = Math.max(maxY[f], top[i]);
+            count[f]++;
+        }
+
+        for(int f = 0; f < floorCount; f++) {
+            if(count[f] > 0) {
+                float w = maxX[f] - originX[f], h = maxY[f] - originY[f];
+                cellSize[f] = Math.max(MIN_CELL_SIZE, (float) Math.sqrt(w*h / count[f]));
+                cols[f] = (int) (w / cellSize[f]) + 1;
+                rows[f] = (int) (h / cellSize[f]) + 1;
+            }
+            cellBase[f+1] = cellBase[f] + cols[f]*rows[f];
+        }
+
+        // two passes over the cells each box covers, first counting and then filling
+        cellStart = new int[cellBase[floorCount]+1];
+        for(int i = 0; i < n; i++) {
+            int f = floors[i] - minFloor;
+            for(int cy = row(f, bottom[i]); cy <= row(f, top[i]); cy++) {
+                for(int cx = col(f, left[i]); cx <= col(f, right[i]); cx++) cellStart[cellBase[f] + cy*cols[f] + cx + 1]++;
+            }
+        }
+        for(int c = 0; c+1 < cellStart.length; c++) cellStart[c+1] += cellStart[c];
+
+        cellItems = new int[cellStart[cellStart.length-1]];
+        int[] fill = new int[cellStart.length];
+        for(int i = 0; i < n; i++) {
+            int f = floors[i] - minFloor;
+            for(int cy = row(f, bottom[i]); cy <= row(f, top[i]); cy++) {
+                for(int cx = col(f, left[i]); cx <= col(f, right[i]); cx++) {
+                    int c = cellBase[f] + cy*cols[f] + cx;
+                    cellItems[cellStart[c] + fill[c]++] = i;
+                }
+            }
+        }
+    }
+
+    private int col(int f, float x) {
+        return Math.max(0, Math.min(cols[f]-1, (int) Math.floor((x - originX[f]) / cellSize[f])));
+    }
+
+    private int row(int f, float y) {
+        return Math.max(0, Math.min(rows[f]-1, (int) Math.floor((y - originY[f]) / cellSize[f])));
+    }
+
+    public int getItemCount() { return stamps.length; }
+
+    // writes the items on the given floor whose box overlaps the query box into out, each once,
+    // and returns how many were written. out needs room for getItemCount() items at most.
+    public int query(int floor, float qLeft, float qBottom, float qRight, float qTop, int[] out) {
+        int f = floor - minFloor;
+        if(f < 0 || f >= cols.length || cols[f] == 0) return 0;
+        if(qRight < originX[f] || qTop < originY[f]) return 0;
+
+        if(++stamp == 0) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+
+        int found = 0;
+        int i0 = col(f, qLeft), i1 = col(f, qRight);
+        int j0 = row(f, qBottom), j1 = row(f, qTop);
+        for(int j = j0; j <= j1; j++) {
+            for(int i = i0; i <= i1; i++) {
+                int c = cellBase[f] + j*cols[f] + i;
+                for(int k = cellStart[c]; k < cellStart[c+1]; k++) {
+                    int item = cellItems[k];
+                    if(stamps[item] == stamp) continue;
+                    stamps[item] = stamp;
+
+                    if(right[item] < qLeft || left[item] > qRight || top[item] < qBottom || bottom[item] > qTop) continue;
+                    out[found++] = item;
+                }
+            }
+        }
+
+        return found;
+    }
+}
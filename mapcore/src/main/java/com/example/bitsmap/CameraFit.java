@@ -0,0 +1,34 @@
+package com.example.bitsmap;
+
+// Closed form framing for MapView: how far the camera can zoom in and still show a set of points.
+// World y points up and screen y points down, as in MapView's worldToScreen.
+public class CameraFit {
+
+    // Largest scale (px per world unit) at which every point lands on screen when (cx, cy) is at the
+    // centre of a width x height view, keeping the given padding in px between each point and the
+    // screen edges. Infinity if the points are all at the centre, 0 if the padding leaves no room.
+    public static float fitScale(float cx, float cy, float[] xs, float[] ys, int count,
+                                 float padLeft, float padTop, float padRight, float padBottom, int width, int height) {
+        float scale = Float.POSITIVE_INFINITY;
+        for(int i = 0; i < count; i++) {
+            float dx = xs[i] - cx, dy = ys[i] - cy;
+
+            if(dx > 0) scale = Math.min(scale, room(width/2f - padRight, dx));
+            else if(dx < 0) scale = Math.min(scale, room(width/2f - padLeft, -dx));
+
+            // above the centre means towards the top of the screen
+            if(dy > 0) scale = Math.min(scale, room(height/2f - padTop, dy));
+            else if(dy < 0) scale = Math.min(scale, room(height/2f - padBottom, -dy));
+        }
+        return scale;
+    }
+
+    private static float room(float px, float world) {
+        return px <= 0? 0 : px / world;
+    }
+
+    // scale a zoom animation is at after fraction t, moving in log space so every frame zooms by the same ratio
+    public static float interpolateScale(float from, float to, float t) {
+        return (float) (from * Math.pow(to / from, t));
+    }
+}
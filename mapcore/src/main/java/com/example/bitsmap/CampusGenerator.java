@@ -0,0 +1,184 @@
+package com.example.bitsmap;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+// Writes made up campuses in the nodes.txt DSL, for scale testing the loader, routing and rendering.
+// Blocks stand in a row joined by ground floor corridors. Each block has a spine corridor going up
+// from its entrance with rooms either side, side corridors branching off it, and the same layout on
+// every floor. The main stairs at the entrance are climbed to reach each floor; the other stairs and
+// lifts are only paired by index. Upper floors of neighbouring blocks are sometimes bridged.
+// The same parameters and seed always give the same file.
+// usage: CampusGenerator <blocks> <floors> <seed> <nodes.txt>
+public class CampusGenerator {
+
+    private static final int SEGMENT = 5;
+    private static final int BRANCH_SEGMENT = 4;
+    private static final int INDEX_STRIDE = 100;
+
+    private final int blocks;
+    private final int floors;
+    private final long seed;
+
+    private int spineSteps = 12;
+    private int corridorsPerFloor = 2;
+    private int branchSteps = 4;
+    private int stairsPerBlock = 2;
+    private int liftsPerBlock = 1;
+    private double rampChance = 0.3;
+    private double roomChance = 0.7;
+    private double bridgeChance = 0.5;
+
+    public CampusGenerator(int blocks, int floors, long seed) {
+        this.blocks = blocks;
+        this.floors = floors;
+        this.seed = seed;
+    }
+
+    // corridor density: how long each block's spine is and how many side corridors leave it on a floor
+    public void setSpineSteps(int spineSteps) { this.spineSteps = spineSteps; }
+    public void setCorridorsPerFloor(int corridorsPerFloor) { this.corridorsPerFloor = corridorsPerFloor; }
+    public void setBranchSteps(int branchSteps) { this.branchSteps = branchSteps; }
+    // floor changers per block, not counting the main stairs at the entrance
+    public void setStairsPerBlock(int stairsPerBlock) { this.stairsPerBlock = stairsPerBlock; }
+    public void setLiftsPerBlock(int liftsPerBlock) { this.liftsPerBlock = liftsPerBlock; }
+    public void setRampChance(double rampChance) { this.rampChance = rampChance; }
+    public void setRoomChance(double roomChance) { this.roomChance = roomChance; }
+    public void setBridgeChance(double bridgeChance) { this.bridgeChance = bridgeChance; }
+
+    public String generate() {
+        if(corridorsPerFloor > spineSteps || stairsPerBlock + liftsPerBlock > spineSteps) {
+            throw new IllegalArgumentException("Spine of " + spineSteps + " steps is too short");
+        }
+
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder();
+        int spacing = 2*(branchSteps*BRANCH_SEGMENT + 10);
+
+        for(int b = 0; b < blocks; b++) {
+            BlockLayout layout = new BlockLayout(random);
+
+            if(b > 0) {
+                line(sb, "Goto " + label(b-1, 1));
+                line(sb, "R " + spacing);
+            }
+
+            for(int f = 1; f <= floors; f++) {
+                if(f > 1) {
+                    line(sb, "Goto " + label(b, f-1));
+                    line(sb, "CLIMB Up Stairs " + b*INDEX_STRIDE);
+                }
+                writeFloor(sb, layout, b, f);
+
+                if(f > 1 && b > 0 && random.nextDouble() < bridgeChance) {
+                    line(sb, "Goto " + label(b, f));
+                    line(sb, "Connect " + label(b-1, f));
+                }
+            }
+        }
+
+        return sb.toString();
+    }
+
+    // what stands where along a block's spine, shared by all its floors so the floor changers line up
+    private class BlockLayout {
+        final boolean[] roomLeft = new boolean[spineSteps+1];
+        final boolean[] roomRight = new boolean[spineSteps+1];
+        final boolean[] branch = new boolean[spineSteps+1];
+        // 0 for none, otherwise the floor changer's index within the block and whether it has a ramp
+        final int[] floorChanger = new int[spineSteps+1];
+        final boolean[] isLift = new boolean[spineSteps+1];
+        final boolean[] ramp = new boolean[spineSteps+1];
+        final long roomSeed;
+
+        BlockLayout(Random random) {
+            for(int s = 1; s <= spineSteps; s++) {
+                roomLeft[s] = random.nextDouble() < roomChance;
+                roomRight[s] = random.nextDouble() < roomChance;
+            }
+            for(int placed = 0; placed < corridorsPerFloor; ) {
+                int s = 1 + random.nextInt(spineSteps);
+                if(!branch[s]) {
+                    branch[s] = true;
+                    placed++;
+                }
+            }
+            for(int placed = 0; placed < stairsPerBlock + liftsPerBlock; ) {
+                int s = 1 + random.nextInt(spineSteps);
+                if(floorChanger[s] != 0) continue;
+                placed++;
+                floorChanger[s] = placed;
+                isLift[s] = placed > stairsPerBlock;
+                ramp[s] = isLift[s] || random.nextDouble() < rampChance;
+            }
+            roomSeed = random.nextLong();
+        }
+    }
+
+    private void writeFloor(StringBuilder sb, BlockLayout layout, int b, int f) {
+        Random rooms = new Random(layout.roomSeed);
+        int roomNumber = 0;
+
+        line(sb, label(b, f) + ":");
+        writeFloorChanger(sb, "Stairs", b*INDEX_STRIDE, true, f);
+        line(sb, "R Washroom " + (f % 2 == 0? "F" : "M"));
+
+        for(int s = 1; s <= spineSteps; s++) {
+            line(sb, "U " + SEGMENT);
+            if(layout.roomLeft[s]) line(sb, "L Room " + roomName(b, f, ++roomNumber));
+            if(layout.roomRight[s]) line(sb, "R Room " + roomName(b, f, ++roomNumber));
+            if(layout.floorChanger[s] != 0) {
+                writeFloorChanger(sb, layout.isLift[s]? "Lift" : "Stairs", b*INDEX_STRIDE + layout.floorChanger[s], layout.ramp[s], f);
+            }
+            if(s == spineSteps/2) line(sb, "L DrinkingWater");
+
+            if(layout.branch[s]) {
+                String branchLabel = label(b, f) + "_S" + s;
+                line(sb, branchLabel + ":");
+                String direction = s % 2 == 0? "R " : "L ";
+                for(int j = 0; j < branchSteps; j++) {
+                    line(sb, direction + BRANCH_SEGMENT);
+                    if(rooms.nextDouble() < roomChance) line(sb, "U Room " + roomName(b, f, ++roomNumber));
+                    if(rooms.nextDouble() < roomChance) line(sb, "D Room " + roomName(b, f, ++roomNumber));
+                }
+                line(sb, "Goto " + branchLabel);
+            }
+        }
+    }
+
+    // the Up end on every floor but the top and the Down end on every floor but the bottom,
+    // stacked straight above each other
+    private void writeFloorChanger(StringBuilder sb, String type, int index, boolean ramp, int f) {
+        String access = ramp? " Ramp" : " NoRamp";
+        if(f < floors) line(sb, "L " + type + " " + index + " Up" + access + " 0 0");
+        if(f > 1) line(sb, "L " + type + " " + index + " Down" + access + " 0 0");
+    }
+
+    private static String label(int b, int f) {
+        return "B" + b + "_F" + f;
+    }
+
+    private static String roomName(int b, int f, int number) {
+        return "B" + b + " " + f + (number < 10? "0" : "") + number;
+    }
+
+    private static void line(StringBuilder sb, String line) {
+        sb.append(line).append('\n');
+    }
+
+    public static void main(String[] args) throws IOException {
+        if(args.length != 4) {
+            System.err.println("usage: CampusGenerator <blocks> <floors> <seed> <nodes.txt>");
+            System.exit(1);
+        }
+
+        CampusGenerator generator = new CampusGenerator(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Long.parseLong(args[2]));
+        try(Writer out = new OutputStreamWriter(new FileOutputStream(args[3]), StandardCharsets.UTF_8)) {
+            out.write(generator.generate());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.bitsmap;
+
+import java.util.List;
+import java.util.Map;
+
+// Immutable compressed sparse row copy of the map graph, built once after parsing.
+// Everything is indexed by MapNode.getId(): the edges of node u are offsets[u] .. offsets[u+1]-1,
+// and each edge has its neighbour, its length and a few flags describing what kind of edge it is.
+//
+// Footprint on the shipped map (205 nodes, 500 parsed edges of which 432 are distinct), compressed oops:
+//   HashMap<MapNode, List<MapNode>>: ~32B node + 4B bucket + 24B ArrayList + 16B+4B/slot Object[]
+//   per key, ~23.8 KB, and every length needs a Vec3D pointer chase plus three Math.pow calls.
+//   CampusGraph: 4B offset + 20B coordinates per node, 4B neighbour + 8B length + 1B flags per edge,
+//   ~10.5 KB with every length precomputed.
+public class CampusGraph {
+
+    public static final int SAME_FLOOR = 1;
+    public static final int STAIRS = 1 << 1;
+    public static final int LIFT = 1 << 2;
+    // walkable on a wheelchair, either a flat edge or a ramp/lift between two accessible floor changers
+    public static final int ACCESSIBLE = 1 << 3;
+
+    private final int[] offsets;
+    private final int[] neighbours;
+    private final double[] lengths;
+    private final byte[] flags;
+
+    private final double[] x, y;
+    private final int[] floors;
+    private final int minFloor, maxFloor;
+
+    public CampusGraph(List<MapNode> nodeList, Map<MapNode, List<MapNode>> graph, Map<MapNode, List<Integer>> nodeToInfra, List<Infra> infraList) {
+        int n = nodeList.size();
+
+        x = new double[n];
+        y = new double[n];
+        floors = new int[n];
+        int lo = Integer.MAX_VALUE, hi = Integer.MIN_VALUE;
+        for(MapNode node : nodeList) {
+            int id = node.getId();
+            x[id] = node.getPosition().getX();
+            y[id] = node.getPosition().getY();
+            floors[id] = (int) node.getPosition().getZ();
+            lo = Math.min(lo, floors[id]);
+            hi = Math.max(hi, floors[id]);
+        }
+        minFloor = n == 0? 0 : lo;
+        maxFloor = n == 0? 0 : hi;
+
+        // the parser connects some nodes more than once, keep only the first copy of each edge
+        int[] count = new int[n];
+        int[][] unique = new int[n][];
+        for(MapNode node : nodeList) {
+            List<MapNode> list = graph.get(node);
+            int[] ids = new int[list == null? 0 : list.size()];
+            int c = 0;
+            if(list != null) {
+                for(MapNode neighbour : list) {
+                    boolean seen = false;
+                    for(int i = 0; i < c && !seen; i++) seen = ids[i] == neighbour.getId();
+                    if(!seen) ids[c++] = neighbour.getId();
+                }
+            }
+            unique[node.getId()] = ids;
+            count[node.getId()] = c;
+        }
+
+        offsets = new int[n+1];
+        for(int u = 0; u < n; u++) offsets[u+1] = offsets[u] + count[u];
+
+        neighbours = new int[offsets[n]];
+        lengths = new double[offsets[n]];
+        flags = new byte[offsets[n]];
+        for(int u = 0; u < n; u++) {
+            MapNode from = nodeList.get(u);
+            for(int i = 0; i < count[u]; i++) {
+                int e = offsets[u] + i;
+                int v = unique[u][i];
+                MapNode to = nodeList.get(v);
+
+                neighbours[e] = v;
+                lengths[e] = from.getPosition().dist(to.getPosition());
+                flags[e] = (byte) edgeFlags(from, to, nodeToInfra, infraList);
+            }
+        }
+    }
+
+    // used by MapBlob, which stores the arrays as they are
+    CampusGraph(int[] offsets, int[] neighbours, double[] lengths, byte[] flags, double[] x, double[] y, int[] floors) {
+        this.offsets = offsets;
+        this.neighbours = neighbours;
+        this.lengths = lengths;
+        this.flags = flags;
+        this.x = x;
+        this.y = y;
+        this.floors = floors;
+
+        int lo = Integer.MAX_VALUE, hi = Integer.MIN_VALUE;
+        for(int floor : floors) {
+            lo = Math.min(lo, floor);
+            hi = Math.max(hi, floor);
+        }
+        minFloor = floors.length == 0? 0 : lo;
+        maxFloor = floors.length == 0? 0 : hi;
+    }
+
+    private static int edgeFlags(MapNode n1, MapNode n2, Map<MapNode, List<Integer>> nodeToInfra, List<Infra> infraList) {
+        if(n1.getPosition().getZ() == n2.getPosition().getZ()) return SAME_FLOOR | ACCESSIBLE;
+
+        List<Integer> l1 = nodeToInfra.get(n1);
+        List<Integer> l2 = nodeToInfra.get(n2);
+        if(l1 == null || l2 == null) return 0;
+
+        boolean up = n2.getPosition().getZ() > n1.getPosition().getZ();
+        int result = 0;
+        for(int i : l1) {
+            if(!(infraList.get(i) instanceof FloorChanger)) continue;
+            FloorChanger fc1 = (FloorChanger) infraList.get(i);
+
+            for(int j : l2) {
+                if(!(infraList.get(j) instanceof FloorChanger)) continue;
+                FloorChanger fc2 = (FloorChanger) infraList.get(j);
+
+                boolean stairs = up? fc1.getInfratype() == Infratype.StairsUp && fc2.getInfratype() == Infratype.StairsDown
+                        : fc1.getInfratype() == Infratype.StairsDown && fc2.getInfratype() == Infratype.StairsUp;
+                boolean lift = up? fc1.getInfratype() == Infratype.LiftUp && fc2.getInfratype() == Infratype.LiftDown
+                        : fc1.getInfratype() == Infratype.LiftDown && fc2.getInfratype() == Infratype.LiftUp;
+                if(!stairs && !lift) continue;
+
+                // any accessible pair of the right kind will do
+                if(fc1.isAccessible() && fc2.isAccessible()) result |= ACCESSIBLE;
+                if(fc1.getIndex() == fc2.getIndex()) result |= stairs? STAIRS : LIFT;
+            }
+        }
+
+        return result;
+    }
+
+    public int getNodeCount() { return x.length; }
+    public int getEdgeCount() { return neighbours.length; }
+
+    public int getEdgeStart(int u) { return offsets[u]; }
+    public int getEdgeEnd(int u) { return offsets[u+1]; }
+    public int getNeighbour(int e) { return neighbours[e]; }
+    public double getLength(int e) { return lengths[e]; }
+    public int getFlags(int e) { return flags[e]; }
+    public boolean hasFlag(int e, int flag) { return (flags[e] & flag) != 0; }
+
+    public double getX(int u) { return x[u]; }
+    public double getY(int u) { return y[u]; }
+    public int getFloor(int u) { return floors[u]; }
+    public int getMinFloor() { return minFloor; }
+    public int getMaxFloor() { return maxFloor; }
+
+    // bytes held by the primitive arrays, for comparing against the map based graph
+    public long getFootprintBytes() {
+        return 4L*offsets.length + 4L*neighbours.length + 8L*lengths.length + flags.length
+                + 8L*x.length + 8L*y.length + 4L*floors.length;
+    }
+}
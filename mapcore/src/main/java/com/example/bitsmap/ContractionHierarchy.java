@@ -0,0 +1,407 @@
+package com.example.bitsmap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Contraction hierarchy over a CampusGraph for one set of RoutingProfile weights, for campuses too big
+// to run Dijkstra over on every tap. Nodes are contracted one at a time, least important first (by edge
+// difference plus how many neighbours are already gone): when a route through the node is the only
+// shortest way between two of its neighbours, a shortcut edge is added between them. Floor changes are
+// ordinary edges here, so lifts and stairs end up high in the order like any busy junction.
+// A query searches upwards from both ends and the shortcuts on the route are unpacked back into map nodes.
+// Like PathFinder the query arrays are reused, so one instance answers one query at a time.
+public class ContractionHierarchy {
+
+    // witness searches give up after this many nodes and add the shortcut, which is safe, just bigger
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private final List<MapNode> nodeList;
+    private final RoutingProfile.Weights weights;
+    private final int n;
+
+    // every edge, original ones first: from -> to with the given cost, and for shortcuts the two edges
+    // (from -> middle, middle -> to) it stands for. Original edges keep their CampusGraph edge id.
+    private int edgeCount;
+    private int[] from, to, childA, childB;
+    private double[] cost;
+    private int originalEdgeCount;
+
+    private final int[] rank;
+    // upward edges: leaving u to a higher node, and arriving at u from a higher node
+    private final int[] upStart, upEdges;
+    private final int[] downStart, downEdges;
+
+    private final Search forward, backward;
+    private final IntList route = new IntList(), stack = new IntList();
+    private int settledCount;
+
+    public ContractionHierarchy(List<MapNode> nodeList, RoutingProfile.Weights weights) {
+        this.nodeList = nodeList;
+        this.weights = weights;
+        CampusGraph graph = weights.getGraph();
+        n = graph.getNodeCount();
+
+        int m = graph.getEdgeCount();
+        from = new int[Math.max(m, 16)];
+        to = new int[from.length];
+        childA = new int[from.length];
+        childB = new int[from.length];
+        cost = new double[from.length];
+        for(int u = 0; u < n; u++) {
+            for(int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+                // masked edges keep their slot so ids line up, but are never linked in
+                addEdge(u, graph.getNeighbour(e), weights.getMask().allows(e)? weights.getCost(e) : Double.POSITIVE_INFINITY, -1, -1);
+            }
+        }
+        originalEdgeCount = edgeCount;
+
+        rank = contract();
+
+        upStart = new int[n+1];
+        downStart = new int[n+1];
+        for(int e = 0; e < edgeCount; e++) {
+            if(cost[e] == Double.POSITIVE_INFINITY) continue;
+            if(rank[to[e]] > rank[from[e]]) upStart[from[e]+1]++;
+            else downStart[to[e]+1]++;
+        }
+        for(int u = 0; u < n; u++) {
+            upStart[u+1] += upStart[u];
+            downStart[u+1] += downStart[u];
+        }
+        upEdges = new int[upStart[n]];
+        downEdges = new int[downStart[n]];
+        int[] upFill = new int[n], downFill = new int[n];
+        for(int e = 0; e < edgeCount; e++) {
+            if(cost[e] == Double.POSITIVE_INFINITY) continue;
+            if(rank[to[e]] > rank[from[e]]) upEdges[upStart[from[e]] + upFill[from[e]]++] = e;
+            else downEdges[downStart[to[e]] + downFill[to[e]]++] = e;
+        }
+
+        forward = new Search(n);
+        backward = new Search(n);
+    }
+
+    private int addEdge(int u, int v, double c, int a, int b) {
+        if(edgeCount == from.length) {
+            int capacity = 2*from.length;
+            from = Arrays.copyOf(from, capacity);
+            to = Arrays.copyOf(to, capacity);
+            childA = Arrays.copyOf(childA, capacity);
+            childB = Arrays.copyOf(childB, capacity);
+            cost = Arrays.copyOf(cost, capacity);
+        }
+        from[edgeCount] = u;
+        to[edgeCount] = v;
+        cost[edgeCount] = c;
+        childA[edgeCount] = a;
+        childB[edgeCount] = b;
+        return edgeCount++;
+    }
+
+    // ---- preprocessing ----
+
+    private IntList[] outEdges, inEdges;
+    private boolean[] contracted;
+    private int[] contractedNeighbours;
+    private Search witness;
+
+    private int[] contract() {
+        outEdges = new IntList[n];
+        inEdges = new IntList[n];
+        for(int u = 0; u < n; u++) {
+            outEdges[u] = new IntList();
+            inEdges[u] = new IntList();
+        }
+        for(int e = 0; e < edgeCount; e++) {
+            if(cost[e] == Double.POSITIVE_INFINITY || from[e] == to[e]) continue;
+            outEdges[from[e]].add(e);
+            inEdges[to[e]].add(e);
+        }
+        contracted = new boolean[n];
+        contractedNeighbours = new int[n];
+        witness = new Search(n);
+
+        // priorities can go negative, the offset keeps them sortable as the top half of a long
+        PriorityQueue<Long> queue = new PriorityQueue<>();
+        for(int v = 0; v < n; v++) queue.add(queueKey(priority(v), v));
+
+        int[] order = new int[n];
+        int next = 0;
+        while(!queue.isEmpty()) {
+            int v = (int) (long) queue.poll();
+            // lazy update: only contract v if it's still the least important once its priority is redone
+            int p = priority(v);
+            if(!queue.isEmpty() && queueKey(p, v) > queue.peek()) {
+                queue.add(queueKey(p, v));
+                continue;
+            }
+
+            shortcuts(v, false);
+            contracted[v] = true;
+            order[v] = next++;
+            for(int i = 0; i < outEdges[v].size; i++) contractedNeighbours[to[outEdges[v].get(i)]]++;
+            for(int i = 0; i < inEdges[v].size; i++) contractedNeighbours[from[inEdges[v].get(i)]]++;
+        }
+
+        outEdges = inEdges = null;
+        contracted = null;
+        contractedNeighbours = null;
+        witness = null;
+        return order;
+    }
+
+    private static long queueKey(int priority, int v) {
+        return ((long) (priority + (1 << 30)) << 32) | v;
+    }
+
+    private int priority(int v) {
+        int removed = 0;
+        for(int i = 0; i < outEdges[v].size; i++) if(!contracted[to[outEdges[v].get(i)]]) removed++;
+        for(int i = 0; i < inEdges[v].size; i++) if(!contracted[from[inEdges[v].get(i)]]) removed++;
+        return shortcuts(v, true) - removed + contractedNeighbours[v];
+    }
+
+    // counts the shortcuts contracting v needs, and adds them unless simulating
+    private int shortcuts(int v, boolean simulate) {
+        int count = 0;
+        IntList in = inEdges[v], out = outEdges[v];
+
+        for(int i = 0; i < in.size; i++) {
+            int a = in.get(i);
+            int u = from[a];
+            if(contracted[u]) continue;
+
+            double maxCost = -1;
+            for(int j = 0; j < out.size; j++) {
+                int b = out.get(j);
+                if(contracted[to[b]] || to[b] == u) continue;
+                maxCost = Math.max(maxCost, cost[a] + cost[b]);
+            }
+            if(maxCost < 0) continue;
+
+            witnessSearch(u, v, maxCost);
+            for(int j = 0; j < out.size; j++) {
+                int b = out.get(j);
+                int w = to[b];
+                if(contracted[w] || w == u) continue;
+
+                double c = cost[a] + cost[b];
+                if(witness.reached(w) && witness.dist[w] <= c) continue;
+
+                count++;
+                if(!simulate) {
+                    int e = addEdge(u, w, c, a, b);
+                    outEdges[u].add(e);
+                    inEdges[w].add(e);
+                }
+            }
+        }
+
+        return count;
+    }
+
+    // Dijkstra from u over the nodes still in the graph, leaving out v, up to maxCost
+    private void witnessSearch(int u, int v, double maxCost) {
+        witness.start(u);
+        int settled = 0;
+        while(!witness.isEmpty() && settled < WITNESS_SETTLE_LIMIT) {
+            int x = witness.pop();
+            if(x == -1) continue;
+            if(witness.dist[x] > maxCost) break;
+            settled++;
+
+            for(int i = 0; i < outEdges[x].size; i++) {
+                int e = outEdges[x].get(i);
+                int y = to[e];
+                if(y == v || contracted[y]) continue;
+                witness.relax(y, witness.dist[x] + cost[e], e);
+            }
+        }
+    }
+
+    // ---- queries ----
+
+    // Fills path with the cheapest route from source to target, like PathFinder.findPath with the same weights.
+    public double findPath(MapNode source, MapNode target, List<MapNode> path) {
+        path.clear();
+        int s = source.getId(), t = target.getId();
+        forward.start(s);
+        backward.start(t);
+        settledCount = 0;
+
+        double best = Double.POSITIVE_INFINITY;
+        int meet = -1;
+        while(true) {
+            double forwardMin = forward.isEmpty()? Double.POSITIVE_INFINITY : forward.peekKey();
+            double backwardMin = backward.isEmpty()? Double.POSITIVE_INFINITY : backward.peekKey();
+            // neither side can find anything cheaper than the best meeting so far
+            if(Math.min(forwardMin, backwardMin) >= best) break;
+
+            boolean forwards = forwardMin <= backwardMin;
+            Search search = forwards? forward : backward;
+            Search other = forwards? backward : forward;
+            int u = search.pop();
+            if(u == -1) continue;
+            settledCount++;
+
+            if(other.reached(u) && search.dist[u] + other.dist[u] < best) {
+                best = search.dist[u] + other.dist[u];
+                meet = u;
+            }
+
+            if(forwards) {
+                for(int i = upStart[u]; i < upStart[u+1]; i++) {
+                    int e = upEdges[i];
+                    forward.relax(to[e], forward.dist[u] + cost[e], e);
+                }
+            }
+            else {
+                for(int i = downStart[u]; i < downStart[u+1]; i++) {
+                    int e = downEdges[i];
+                    backward.relax(from[e], backward.dist[u] + cost[e], e);
+                }
+            }
+        }
+
+        if(meet == -1) return Double.POSITIVE_INFINITY;
+
+        route.size = 0;
+        for(int v = meet; v != s; v = from[forward.parentEdge[v]]) route.add(forward.parentEdge[v]);
+        route.reverse();
+        for(int v = meet; v != t; v = to[backward.parentEdge[v]]) route.add(backward.parentEdge[v]);
+
+        path.add(source);
+        stack.size = 0;
+        for(int i = 0; i < route.size; i++) {
+            stack.add(route.get(i));
+            while(stack.size > 0) {
+                int e = stack.removeLast();
+                if(childA[e] == -1) {
+                    path.add(nodeList.get(to[e]));
+                }
+                else {
+                    stack.add(childB[e]);
+                    stack.add(childA[e]);
+                }
+            }
+        }
+
+        return best;
+    }
+
+    public RoutingProfile.Weights getWeights() { return weights; }
+    // nodes taken off either queue by the last query
+    public int getSettledCount() { return settledCount; }
+    public int getShortcutCount() { return edgeCount - originalEdgeCount; }
+
+    // bytes held on top of the CampusGraph: shortcut edges, the order and the upward adjacency
+    public long getFootprintBytes() {
+        return (4L*4 + 8)*(edgeCount - originalEdgeCount) + 4L*2*originalEdgeCount + 4L*rank.length
+                + 4L*(upStart.length + upEdges.length + downStart.length + downEdges.length);
+    }
+
+    // one direction of Dijkstra with a binary heap that allows duplicates, stale entries are skipped on pop
+    private static class Search {
+        final double[] dist;
+        final int[] parentEdge;
+        final int[] stamps;
+        int generation;
+
+        double[] heapKeys = new double[64];
+        int[] heapNodes = new int[64];
+        int heapSize;
+
+        Search(int n) {
+            dist = new double[n];
+            parentEdge = new int[n];
+            stamps = new int[n];
+        }
+
+        void start(int s) {
+            generation++;
+            if(generation == Integer.MAX_VALUE) {
+                Arrays.fill(stamps, 0);
+                generation = 1;
+            }
+            heapSize = 0;
+            stamps[s] = generation;
+            dist[s] = 0;
+            parentEdge[s] = -1;
+            push(0, s);
+        }
+
+        boolean reached(int v) { return stamps[v] == generation; }
+        boolean isEmpty() { return heapSize == 0; }
+        double peekKey() { return heapKeys[0]; }
+
+        void relax(int v, double d, int e) {
+            if(reached(v) && dist[v] <= d) return;
+            stamps[v] = generation;
+            dist[v] = d;
+            parentEdge[v] = e;
+            push(d, v);
+        }
+
+        // the next settled node, or -1 if the entry on top was stale
+        int pop() {
+            double key = heapKeys[0];
+            int v = heapNodes[0];
+            heapSize--;
+            if(heapSize > 0) {
+                double lastKey = heapKeys[heapSize];
+                int lastNode = heapNodes[heapSize];
+                int i = 0, half = heapSize >>> 1;
+                while(i < half) {
+                    int child = 2*i + 1;
+                    if(child+1 < heapSize && heapKeys[child+1] < heapKeys[child]) child++;
+                    if(lastKey <= heapKeys[child]) break;
+                    heapKeys[i] = heapKeys[child];
+                    heapNodes[i] = heapNodes[child];
+                    i = child;
+                }
+                heapKeys[i] = lastKey;
+                heapNodes[i] = lastNode;
+            }
+            return key > dist[v]? -1 : v;
+        }
+
+        private void push(double key, int v) {
+            if(heapSize == heapKeys.length) {
+                heapKeys = Arrays.copyOf(heapKeys, 2*heapSize);
+                heapNodes = Arrays.copyOf(heapNodes, 2*heapSize);
+            }
+            int i = heapSize++;
+            while(i > 0) {
+                int parent = (i-1) >>> 1;
+                if(heapKeys[parent] <= key) break;
+                heapKeys[i] = heapKeys[parent];
+                heapNodes[i] = heapNodes[parent];
+                i = parent;
+            }
+            heapKeys[i] = key;
+            heapNodes[i] = v;
+        }
+    }
+
+    private static class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if(size == values.length) values = Arrays.copyOf(values, 2*size);
+            values[size++] = value;
+        }
+
+        int get(int i) { return values[i]; }
+        int removeLast() { return values[--size]; }
+
+        void reverse() {
+            for(int i = 0, j = size-1; i < j; i++, j--) {
+                int tmp = values[i];
+                values[i] = values[j];
+                values[j] = tmp;
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.bitsmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Runs the search box queries off the ui thread. A query waits delayMs before it runs, and any
+// query typed in the meantime replaces it, so fast typing only searches once it pauses. Results of
+// a query that has been replaced while it ran are dropped instead of being published.
+public class DebouncedSearch {
+
+    public interface Listener {
+        void onResults(String query, List<SearchResult> results);
+    }
+
+    private final ScheduledExecutorService backgroundExecutor;
+    private final Executor uiExecutor;
+    private final long delayMs;
+
+    private volatile InfraRanker infraRanker;
+    // bumped by every submit and cancel, a query only publishes if it's still the latest
+    private volatile int generation;
+    private Future<?> pending;
+
+    private volatile int searchCount;
+
+    public DebouncedSearch(ScheduledExecutorService backgroundExecutor, Executor uiExecutor, long delayMs) {
+        this.backgroundExecutor = backgroundExecutor;
+        this.uiExecutor = uiExecutor;
+        this.delayMs = delayMs;
+    }
+
+    // until this is set (the map is still loading) every query has no results.
+    // The ranker caches distances between searches, so the background executor has to be single threaded.
+    public void setInfraRanker(InfraRanker infraRanker) { this.infraRanker = infraRanker; }
+
+    // called on the ui thread, the listener is called there too
+    public void submit(String query, Listener listener) {
+        submit(query, null, null, listener);
+    }
+
+    // as above, ranking infra near origin by the profile's route costs higher
+    public void submit(String query, MapNode origin, RoutingProfile.Weights weights, Listener listener) {
+        int current = ++generation;
+        if(pending != null) pending.cancel(false);
+
+        pending = backgroundExecutor.schedule(() -> {
+            if(current != generation) return;
+
+            List<SearchResult> results = new ArrayList<>();
+            InfraRanker ranker = infraRanker;
+            if(ranker != null) ranker.search(query, origin, weights, results);
+            searchCount++;
+
+            uiExecutor.execute(() -> {
+                if(current == generation) listener.onResults(query, results);
+            });
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void cancel() {
+        generation++;
+        if(pending != null) pending.cancel(false);
+        pending = null;
+    }
+
+    // queries that actually ran, for checking the debounce
+    public int getSearchCount() { return searchCount; }
+}
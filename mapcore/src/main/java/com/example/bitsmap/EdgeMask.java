@@ -0,0 +1,25 @@
+package com.example.bitsmap;
+
+// One bit per CampusGraph edge saying whether a route may use it, worked out once per RoutingProfile
+// so PathFinder only has to test a bit per relaxation.
+public class EdgeMask {
+
+    private final long[] bits;
+
+    EdgeMask(int edgeCount) {
+        bits = new long[(edgeCount + 63) >>> 6];
+    }
+
+    // edges the profile can use
+    static EdgeMask fromProfile(CampusGraph graph, RoutingProfile profile) {
+        EdgeMask mask = new EdgeMask(graph.getEdgeCount());
+        for(int e = 0; e < graph.getEdgeCount(); e++) {
+            if(profile.allows(graph, e)) mask.set(e);
+        }
+        return mask;
+    }
+
+    void set(int e) { bits[e >>> 6] |= 1L << e; }
+
+    public boolean allows(int e) { return (bits[e >>> 6] & (1L << e)) != 0; }
+}
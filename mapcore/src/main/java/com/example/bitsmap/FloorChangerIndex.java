@@ -0,0 +1,72 @@
+package com.example.bitsmap;
+
+import java.util.List;
+
+// The floor changers standing at each node, built once so turn by turn directions can tell which
+// stairs or lift a route takes without searching floorChangerMap. Indexed by MapNode.getId() like
+// CampusGraph: the floor changers at node u are ids[start[u] .. start[u+1]-1], and the ones with a
+// ramp are also kept apart in accessibleIds so wheelchair routes don't have to skip the rest.
+public class FloorChangerIndex {
+
+    private final List<Infra> infraList;
+    private final int[] floorChangerPairs;
+
+    private final int[] start, ids;
+    private final int[] accessibleStart, accessibleIds;
+
+    public FloorChangerIndex(MapData mapData) {
+        infraList = mapData.getInfraList();
+        floorChangerPairs = mapData.getFloorChangerPairs();
+        int n = mapData.getNodeList().size();
+
+        start = new int[n+1];
+        accessibleStart = new int[n+1];
+        for(Infra infra : infraList) {
+            if(!(infra instanceof FloorChanger)) continue;
+            int u = infra.getMapNode().getId();
+            start[u+1]++;
+            if(((FloorChanger) infra).isAccessible()) accessibleStart[u+1]++;
+        }
+        for(int u = 0; u < n; u++) {
+            start[u+1] += start[u];
+            accessibleStart[u+1] += accessibleStart[u];
+        }
+
+        ids = new int[start[n]];
+        accessibleIds = new int[accessibleStart[n]];
+        int[] fill = new int[n], accessibleFill = new int[n];
+        for(Infra infra : infraList) {
+            if(!(infra instanceof FloorChanger)) continue;
+            int u = infra.getMapNode().getId();
+            ids[start[u] + fill[u]++] = infra.getId();
+            if(((FloorChanger) infra).isAccessible()) accessibleIds[accessibleStart[u] + accessibleFill[u]++] = infra.getId();
+        }
+    }
+
+    // the floor changer at n1 whose other end is at n2, or null if the two aren't joined by one.
+    // With accessibleOnly both ends need a ramp, as they do for a wheelchair.
+    public FloorChanger between(MapNode n1, MapNode n2, boolean accessibleOnly) {
+        int[] list = accessibleOnly? accessibleIds : ids;
+        int[] bounds = accessibleOnly? accessibleStart : start;
+        int u = n1.getId();
+
+        for(int i = bounds[u]; i < bounds[u+1]; i++) {
+            int pair = floorChangerPairs[list[i]];
+            if(pair == -1) continue;
+
+            FloorChanger other = (FloorChanger) infraList.get(pair);
+            if(other.getMapNode() != n2 || (accessibleOnly && !other.isAccessible())) continue;
+            return (FloorChanger) infraList.get(list[i]);
+        }
+
+        return null;
+    }
+
+    // id of the floor changer at the other end of the given one, or -1
+    public int getPair(int floorChangerId) { return floorChangerPairs[floorChangerId]; }
+
+    public int getFloorChangerCount(MapNode node, boolean accessibleOnly) {
+        int u = node.getId();
+        return accessibleOnly? accessibleStart[u+1] - accessibleStart[u] : start[u+1] - start[u];
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.bitsmap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Every 1, 2 and 3 character substring of a list of texts, each listing the texts it appears in by
+// position, ascending. InfraRanker indexes its compact keys with it.
+class GramIndex {
+
+    static final int GRAM = 3;
+    private static final int[] NONE = new int[0];
+
+    private final Map<String, int[]> grams = new HashMap<>();
+    private final int size;
+
+    GramIndex(String[] texts) {
+        size = texts.length;
+        Map<String, Postings> gramPostings = new HashMap<>();
+        for(int id = 0; id < texts.length; id++) {
+            for(int length = 1; length <= GRAM; length++) {
+                for(int start = 0; start + length <= texts[id].length(); start++) {
+                    postings(gramPostings, texts[id].substring(start, start + length)).add(id);
+                }
+            }
+        }
+        for(Map.Entry<String, Postings> entry : gramPostings.entrySet()) grams.put(entry.getKey(), entry.getValue().toArray());
+    }
+
+    int size() { return size; }
+
+    int[] postings(String gram) {
+        int[] postings = grams.get(gram);
+        return postings == null? NONE : postings;
+    }
+
+    // every text that could contain the query: all of them share each of its trigrams,
+    // so the shortest of those lists is enough to check
+    int[] containing(String query) {
+        if(query.length() <= GRAM) return postings(query);
+
+        int[] best = null;
+        for(int start = 0; start + GRAM <= query.length(); start++) {
+            int[] postings = grams.get(query.substring(start, start + GRAM));
+            if(postings == null) return NONE;
+            if(best == null || postings.length < best.length) best = postings;
+        }
+        return best;
+    }
+
+    // Every text with a substring within typos edits of the query. Each edit can break at most q of
+    // the query's q-grams, so such a text still has at least length-q+1-typos*q of them; q is the
+    // longest gram that keeps that above zero. counts has one slot per text, all 0, and is left that way.
+    int[] within(String query, int typos, int[] counts) {
+        int q = GRAM;
+        while(q > 1 && query.length() - q + 1 - typos*q < 1) q--;
+        int threshold = query.length() - q + 1 - typos*q;
+        if(threshold < 1) {
+            int[] all = new int[size];
+            for(int id = 0; id < size; id++) all[id] = id;
+            return all;
+        }
+
+        Postings passed = new Postings();
+        for(int start = 0; start + q <= query.length(); start++) {
+            for(int id : postings(query.substring(start, start + q))) {
+                if(++counts[id] == threshold) passed.add(id);
+            }
+        }
+        for(int start = 0; start + q <= query.length(); start++) {
+            for(int id : postings(query.substring(start, start + q))) counts[id] = 0;
+        }
+
+        int[] candidates = passed.toArray();
+        Arrays.sort(candidates);
+        return candidates;
+    }
+
+    static <K> Postings postings(Map<K, Postings> map, K key) {
+        Postings postings = map.get(key);
+        if(postings == null) {
+            postings = new Postings();
+            map.put(key, postings);
+        }
+        return postings;
+    }
+
+    // ids are added in ascending order, repeats from the same text are dropped
+    static class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if(size > 0 && ids[size-1] == id) return;
+            if(size == ids.length) ids = Arrays.copyOf(ids, 2*size);
+            ids[size++] = id;
+        }
+
+        int[] toArray() { return Arrays.copyOf(ids, size); }
+    }
+}
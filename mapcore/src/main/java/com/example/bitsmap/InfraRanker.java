@@ -0,0 +1,239 @@
+package com.example.bitsmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+// Search results ordered by how well they match rather than by where they are in infraList, so
+// "h13" finds H 137 and "washrom" finds the washrooms. Names and queries are compared in a compact
+// form: lowercase letters and digits only, with the floor appended ("H 137" on floor 1 is "h137floor1").
+// Best to worst an infra can match as the whole name, a prefix, a prefix of one of its words, anywhere
+// in it, or within a few typos, found with Myers' bit-parallel edit distance. Given an origin, infra
+// closer to it by route cost get a boost that can reorder them within a kind of match. Only the best
+// maxResults are kept, in a heap, and only those are sorted. Fire extinguishers and hoses are on the
+// map but never offered as results.
+// Keys are indexed by their grams, so a query only scores the infra that can
+// match it: those under its rarest trigram when no typos are allowed, or else those sharing enough
+// of its grams to be within the allowed typos.
+// Not thread safe: the distances from the last origin are cached between searches.
+public class InfraRanker {
+
+    private static final double EXACT = 1000;
+    private static final double PREFIX = 800;
+    private static final double WORD_PREFIX = 600;
+    private static final double SUBSTRING = 400;
+    private static final double FUZZY = 200;
+    private static final double PER_TYPO = 50;
+
+    private final Infra[] infra;
+    // compact name and name with floor, and the compact words of the name
+    private final String[] names;
+    private final String[] keys;
+    private final String[][] words;
+    private final GramIndex index;
+    private final int[] counts;
+    private final PathFinder pathFinder;
+
+    private int maxResults = 50;
+    private double proximityBoost = 100;
+    private double proximityScale = 100;
+
+    private MapNode distanceOrigin;
+    private RoutingProfile.Weights distanceWeights;
+    private int[] parents;
+    private double[] distances;
+
+    public InfraRanker(MapData mapData) {
+        List<Infra> searchable = new ArrayList<>();
+        for(Infra i : mapData.getInfraList()) {
+            if(isSearchable(i)) searchable.add(i);
+        }
+
+        int count = searchable.size();
+        infra = searchable.toArray(new Infra[0]);
+        names = new String[count];
+        keys = new String[count];
+        words = new String[count][];
+        for(int id = 0; id < count; id++) {
+            names[id] = compact(infra[id].getName());
+            keys[id] = names[id] + "floor" + (int) infra[id].getPosition().getZ();
+            words[id] = words(infra[id].getName());
+        }
+        index = new GramIndex(keys);
+        counts = new int[count];
+
+        pathFinder = new PathFinder(mapData.getNodeList(), mapData.getCampusGraph());
+    }
+
+    static boolean isSearchable(Infra infra) {
+        String name = infra.getName().toLowerCase(Locale.ROOT);
+        return !name.equals("fireextinguisher") && !name.equals("firehose");
+    }
+
+    public void setMaxResults(int maxResults) { this.maxResults = maxResults; }
+    // an infra at the origin gets the whole boost, one proximityScale away by route cost gets half
+    public void setProximityBoost(double proximityBoost) { this.proximityBoost = proximityBoost; }
+    public void setProximityScale(double proximityScale) { this.proximityScale = proximityScale; }
+
+    public void search(String query, List<SearchResult> results) {
+        search(query, null, null, results);
+    }
+
+    // as above, boosting infra near origin by the profile's route costs, a null origin boosts nothing
+    public void search(String query, MapNode origin, RoutingProfile.Weights weights, List<SearchResult> results) {
+        results.clear();
+        String pattern = compact(query);
+        if(pattern.isEmpty() || maxResults <= 0) return;
+        if(origin != null) updateDistances(origin, weights);
+
+        Matcher matcher = new Matcher(pattern);
+        PriorityQueue<Ranked> best = new PriorityQueue<>(maxResults + 1);
+        for(int id : candidates(pattern)) {
+            double score = score(id, pattern, matcher);
+            if(score < 0) continue;
+            if(origin != null) score += proximityBoost / (1 + distances[infra[id].getMapNode().getId()] / proximityScale);
+
+            Ranked ranked = new Ranked(id, score, names[id].length());
+            if(best.size() < maxResults) best.add(ranked);
+            else if(ranked.compareTo(best.peek()) > 0) {
+                best.poll();
+                best.add(ranked);
+            }
+        }
+
+        Ranked[] ordered = new Ranked[best.size()];
+        for(int i = ordered.length - 1; i >= 0; i--) ordered[i] = best.poll();
+        for(Ranked ranked : ordered) results.add(new SearchResult(infra[ranked.id], infra[ranked.id].getMapNode()));
+    }
+
+    // how well infra id matches, negative when it doesn't
+    private double score(int id, String pattern, Matcher matcher) {
+        if(names[id].equals(pattern)) return EXACT;
+        if(keys[id].startsWith(pattern)) return PREFIX;
+        for(String word : words[id]) {
+            if(word.startsWith(pattern)) return WORD_PREFIX;
+        }
+        if(keys[id].contains(pattern)) return SUBSTRING;
+
+        int typos = matcher.distance(keys[id]);
+        return typos <= maxTypos(pattern.length())? FUZZY - PER_TYPO * typos : -1;
+    }
+
+    // every infra that could score for the pattern, in ascending order; exact, prefix and word
+    // matches all have the pattern somewhere in the key
+    int[] candidates(String pattern) {
+        int typos = maxTypos(pattern.length());
+        if(typos == 0 || pattern.length() > 64) return index.containing(pattern);
+        return index.within(pattern, typos, counts);
+    }
+
+    // short queries have to be spelt right, or nearly everything would match them
+    static int maxTypos(int length) {
+        if(length < 4) return 0;
+        if(length < 8) return 1;
+        return 2;
+    }
+
+    // the single source distances are only searched again when the origin or profile changes
+    private void updateDistances(MapNode origin, RoutingProfile.Weights weights) {
+        if(origin == distanceOrigin && weights == distanceWeights) return;
+        if(distances == null) {
+            parents = new int[pathFinder.getNodeList().size()];
+            distances = new double[parents.length];
+        }
+        pathFinder.shortestPathTree(origin, weights, parents, distances);
+        distanceOrigin = origin;
+        distanceWeights = weights;
+    }
+
+    static String compact(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for(int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    // "WashroomAll" is washroom and all, "H 137" is h and 137
+    static String[] words(String name) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        char last = ' ';
+        for(int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean boundary = !Character.isLetterOrDigit(c)
+                    || (Character.isUpperCase(c) && Character.isLowerCase(last))
+                    || (Character.isDigit(c) != Character.isDigit(last) && Character.isLetterOrDigit(last));
+            if(boundary && word.length() > 0) {
+                words.add(compact(word.toString()));
+                word.setLength(0);
+            }
+            if(Character.isLetterOrDigit(c)) word.append(c);
+            last = c;
+        }
+        if(word.length() > 0) words.add(compact(word.toString()));
+        return words.toArray(new String[0]);
+    }
+
+    // Myers' bit-parallel edit distance between the pattern and its best match anywhere in a text.
+    // Bit i of the vertical deltas tracks row i+1 of the dynamic programming table, so a whole column
+    // is updated in a few word operations. Patterns are compact and at most 64 characters, longer ones
+    // never match fuzzily.
+    static class Matcher {
+        private final long[] peq = new long[128];
+        private final int length;
+        private final long last;
+
+        Matcher(String pattern) {
+            length = pattern.length();
+            for(int i = 0; i < Math.min(length, 64); i++) peq[pattern.charAt(i)] |= 1L << i;
+            last = 1L << (length - 1);
+        }
+
+        int distance(String text) {
+            if(length > 64) return Integer.MAX_VALUE;
+            long pv = -1, mv = 0;
+            int score = length, best = length;
+            for(int j = 0; j < text.length(); j++) {
+                char c = text.charAt(j);
+                long eq = c < 128? peq[c] : 0;
+                long xv = eq | mv;
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+                if((ph & last) != 0) score++;
+                else if((mh & last) != 0) score--;
+                // the top row stays 0, a match may start anywhere in the text
+                ph <<= 1;
+                mh <<= 1;
+                pv = mh | ~(xv | ph);
+                mv = ph & xv;
+                if(score < best) best = score;
+            }
+            return best;
+        }
+    }
+
+    // ordered worst first, so the heap's head is the one to drop: lower score, then a longer name,
+    // then later in infraList
+    private static class Ranked implements Comparable<Ranked> {
+        final int id;
+        final double score;
+        final int nameLength;
+
+        Ranked(int id, double score, int nameLength) {
+            this.id = id;
+            this.score = score;
+            this.nameLength = nameLength;
+        }
+
+        @Override
+        public int compareTo(Ranked other) {
+            if(score != other.score) return Double.compare(score, other.score);
+            if(nameLength != other.nameLength) return Integer.compare(other.nameLength, nameLength);
+            return Integer.compare(other.id, id);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.bitsmap;
+
+import java.util.List;
+import java.util.Map;
+
+// Turns a route into the navigation prompts for every index of it, once, instead of looking ahead
+// along the path again each time the user steps forward or back.
+// From a node on the same floor as the next, the prompt heads for the end of the straight run ahead
+// and names the landmark there, or else the last landmark along the run. Runs are found walking the
+// path backwards, where each node's run is either the next node's run or ends at the next node,
+// so the whole route takes one pass.
+public class InstructionCompiler {
+
+    private final List<Infra> infraList;
+    private final Map<MapNode, List<Integer>> nodeToInfra;
+    private final FloorChangerIndex floorChangerIndex;
+
+    public InstructionCompiler(MapData mapData, FloorChangerIndex floorChangerIndex) {
+        infraList = mapData.getInfraList();
+        nodeToInfra = mapData.getNodeToInfra();
+        this.floorChangerIndex = floorChangerIndex;
+    }
+
+    // maneuvers[i] is the prompt shown at path index i, the last one is always Arrive.
+    // accessibleOnly picks lifts and ramps over stairs where a floor change has both.
+    public Maneuver[] compile(List<MapNode> path, boolean accessibleOnly) {
+        int n = path.size();
+        Maneuver[] maneuvers = new Maneuver[n];
+        if(n == 0) return maneuvers;
+
+        double[] along = new double[n];
+        Infra[] landmarks = new Infra[n];
+        for(int k = 0; k < n; k++) {
+            if(k > 0) along[k] = along[k-1] + path.get(k-1).getPosition().dist(path.get(k).getPosition());
+            landmarks[k] = landmark(path.get(k));
+        }
+
+        maneuvers[n-1] = new Maneuver(Maneuver.Kind.Arrive, 0, n-1, n-1, null, null, null, 0);
+
+        // the straight run leaving node i ends at runEnd, lastLandmark is the furthest node in
+        // (i, runEnd] with a landmark or -1
+        int runEnd = n-1;
+        int lastLandmark = -1;
+        for(int i = n-2; i >= 0; i--) {
+            if(i+2 < n && !parallel(path, i, i+1)) {
+                runEnd = i+1;
+                lastLandmark = -1;
+            }
+            if(lastLandmark == -1 && landmarks[i+1] != null) lastLandmark = i+1;
+
+            double turnAngle = i > 0? turnAngle(path, i) : 0;
+            MapNode n1 = path.get(i), n2 = path.get(i+1);
+
+            if(n1.getPosition().getZ() != n2.getPosition().getZ()) {
+                FloorChanger fc = floorChangerIndex.between(n1, n2, accessibleOnly);
+                maneuvers[i] = new Maneuver(Maneuver.Kind.ChangeFloor, turnAngle, i, i+1, null, null, fc, along[i+1] - along[i]);
+                continue;
+            }
+
+            int target = landmarks[runEnd] != null? runEnd : lastLandmark;
+            if(target != -1) {
+                maneuvers[i] = new Maneuver(Maneuver.Kind.GoTo, turnAngle, i, runEnd, landmarks[target], path.get(target), null, along[runEnd] - along[i]);
+            }
+            else {
+                // nothing named along the run, the pin goes where it turns (or just short of the end)
+                MapNode pin = path.get(Math.min(runEnd, n-2));
+                maneuvers[i] = new Maneuver(Maneuver.Kind.KeepGoing, turnAngle, i, runEnd, null, pin, null, along[runEnd] - along[i]);
+            }
+        }
+
+        return maneuvers;
+    }
+
+    // whether the edges leaving path indices a and b point the same (or exactly opposite) way
+    private static boolean parallel(List<MapNode> path, int a, int b) {
+        Vec3D a1 = path.get(a).getPosition(), a2 = path.get(a+1).getPosition();
+        Vec3D b1 = path.get(b).getPosition(), b2 = path.get(b+1).getPosition();
+        double x = a2.getX() - a1.getX(), y = a2.getY() - a1.getY(), z = a2.getZ() - a1.getZ();
+        double vx = b2.getX() - b1.getX(), vy = b2.getY() - b1.getY(), vz = b2.getZ() - b1.getZ();
+        return (y*vz-z*vy) == 0 && (x*vz-z*vx) == 0 && (x*vy-y*vx) == 0;
+    }
+
+    // in degrees, turning at path index i from the edge arriving there to the one leaving it
+    private static double turnAngle(List<MapNode> path, int i) {
+        Vec3D p0 = path.get(i-1).getPosition(), p1 = path.get(i).getPosition(), p2 = path.get(i+1).getPosition();
+        double x = p1.getX() - p0.getX(), y = p1.getY() - p0.getY();
+        double vx = p2.getX() - p1.getX(), vy = p2.getY() - p1.getY();
+        return Math.toDegrees(Math.atan2(x*vy - y*vx, x*vx + y*vy));
+    }
+
+    // the infra at a node that best tells it apart: rooms first, then washrooms, drinking water,
+    // lifts and stairs. null when there's none
+    Infra landmark(MapNode node) {
+        List<Integer> infraIndexList = nodeToInfra.get(node);
+        if(infraIndexList == null) return null;
+
+        Infra infra = null;
+        for(int i : infraIndexList) {
+            Infra inf = infraList.get(i);
+            if(infra == null || rank(inf.getInfratype()) <= rank(infra.getInfratype())) infra = inf;
+        }
+        return infra;
+    }
+
+    private static int rank(Infratype type) {
+        switch(type) {
+            case Room: return 0;
+            case Washroom: return 1;
+            case DrinkingWater: return 2;
+            case LiftUp: case LiftDown: return 3;
+            case StairsUp: case StairsDown: return 4;
+            default: return 5;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.bitsmap;
+
+// One navigation prompt: what to do at path index start to get to path index end.
+public class Maneuver {
+
+    public enum Kind { GoTo, KeepGoing, ChangeFloor, Arrive }
+
+    private final Kind kind;
+    private final double turnAngle;
+    private final int start, end;
+    private final Infra landmark;
+    private final MapNode landmarkNode;
+    private final FloorChanger floorChanger;
+    private final double distance;
+
+    public Maneuver(Kind kind, double turnAngle, int start, int end, Infra landmark, MapNode landmarkNode, FloorChanger floorChanger, double distance) {
+        this.kind = kind;
+        this.turnAngle = turnAngle;
+        this.start = start;
+        this.end = end;
+        this.landmark = landmark;
+        this.landmarkNode = landmarkNode;
+        this.floorChanger = floorChanger;
+        this.distance = distance;
+    }
+
+    public Kind getKind() { return kind; }
+    // degrees turned at start coming from the previous node, left is positive and 0 at the first node
+    public double getTurnAngle() { return turnAngle; }
+    public int getStart() { return start; }
+    public int getEnd() { return end; }
+    // what to head for (GoTo) and where to put the middle pin (GoTo and KeepGoing)
+    public Infra getLandmark() { return landmark; }
+    public MapNode getLandmarkNode() { return landmarkNode; }
+    // for ChangeFloor, null if the map has none between the two nodes
+    public FloorChanger getFloorChanger() { return floorChanger; }
+    // along the path from start to end
+    public double getDistance() { return distance; }
+}
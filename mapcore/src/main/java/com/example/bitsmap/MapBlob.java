@@ -0,0 +1,221 @@
+package com.example.bitsmap;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Binary form of a parsed map, written at build time by MapCompiler and loaded by the app instead
+// of parsing nodes.txt. Everything is big endian:
+//
+//   int magic 'BMAP', int version
+//   string table:  int count, (int byteLength, UTF-8 bytes) per string
+//   nodes:         int n, double x[n], double y[n], double z[n]
+//   CSR graph:     int offsets[n+1], int m, int neighbours[m], double lengths[m], byte flags[m]
+//   infra:         int count, per infra: byte kind, int name, byte infratype, byte orientation, int node
+//                  and for floor changers: double otherEnd x/y/z, byte accessible, int index, int pair
+//   references:    int count, (int name, int node) per reference point
+public class MapBlob {
+
+    public static final int MAGIC = 0x424D4150;
+    public static final int VERSION = 1;
+
+    private static final byte KIND_INFRA = 0;
+    private static final byte KIND_FLOOR_CHANGER = 1;
+
+    // told about the graph as soon as it's read, before the infra objects are built
+    public interface GraphListener {
+        void onGraphRead(CampusGraph graph);
+    }
+
+    public static void write(MapData mapData, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        List<MapNode> nodeList = mapData.getNodeList();
+        List<Infra> infraList = mapData.getInfraList();
+        CampusGraph graph = mapData.getCampusGraph();
+
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        for(Infra infra : infraList) stringId(strings, infra.getName());
+        for(String name : mapData.getReferencePoints().keySet()) stringId(strings, name);
+
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+
+        data.writeInt(strings.size());
+        for(String str : strings.keySet()) {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+
+        int n = nodeList.size();
+        data.writeInt(n);
+        for(MapNode node : nodeList) data.writeDouble(node.getPosition().getX());
+        for(MapNode node : nodeList) data.writeDouble(node.getPosition().getY());
+        for(MapNode node : nodeList) data.writeDouble(node.getPosition().getZ());
+
+        for(int u = 0; u <= n; u++) data.writeInt(graph.getEdgeStart(u));
+        data.writeInt(graph.getEdgeCount());
+        for(int e = 0; e < graph.getEdgeCount(); e++) data.writeInt(graph.getNeighbour(e));
+        for(int e = 0; e < graph.getEdgeCount(); e++) data.writeDouble(graph.getLength(e));
+        for(int e = 0; e < graph.getEdgeCount(); e++) data.writeByte(graph.getFlags(e));
+
+        data.writeInt(infraList.size());
+        for(Infra infra : infraList) {
+            data.writeByte(infra instanceof FloorChanger? KIND_FLOOR_CHANGER : KIND_INFRA);
+            data.writeInt(strings.get(infra.getName()));
+            data.writeByte(infra.getInfratype().ordinal());
+            data.writeByte(infra.getOrientation().ordinal());
+            data.writeInt(infra.getMapNode().getId());
+
+            if(infra instanceof FloorChanger) {
+                FloorChanger fc = (FloorChanger) infra;
+                data.writeDouble(fc.getOtherEnd().getX());
+                data.writeDouble(fc.getOtherEnd().getY());
+                data.writeDouble(fc.getOtherEnd().getZ());
+                data.writeByte(fc.isAccessible()? 1 : 0);
+                data.writeInt(fc.getIndex());
+                data.writeInt(mapData.getFloorChangerPairs()[fc.getId()]);
+            }
+        }
+
+        data.writeInt(mapData.getReferencePoints().size());
+        for(Map.Entry<String, MapNode> entry : mapData.getReferencePoints().entrySet()) {
+            data.writeInt(strings.get(entry.getKey()));
+            data.writeInt(entry.getValue().getId());
+        }
+
+        data.flush();
+    }
+
+    public static MapData read(InputStream in) throws IOException {
+        return read(ByteBuffer.wrap(readFully(in)), null);
+    }
+
+    public static MapData read(InputStream in, GraphListener listener) throws IOException {
+        return read(ByteBuffer.wrap(readFully(in)), listener);
+    }
+
+    public static MapData read(ByteBuffer buffer, GraphListener listener) throws IOException {
+        if(buffer.remaining() < 8 || buffer.getInt() != MAGIC) throw new IOException("Not a map blob");
+        int version = buffer.getInt();
+        if(version != VERSION) throw new IOException("Unsupported map blob version " + version);
+
+        String[] strings = new String[buffer.getInt()];
+        for(int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int n = buffer.getInt();
+        double[] x = readDoubles(buffer, n);
+        double[] y = readDoubles(buffer, n);
+        double[] z = readDoubles(buffer, n);
+
+        int[] offsets = readInts(buffer, n+1);
+        int m = buffer.getInt();
+        int[] neighbours = readInts(buffer, m);
+        double[] lengths = readDoubles(buffer, m);
+        byte[] flags = new byte[m];
+        buffer.get(flags);
+
+        int[] floors = new int[n];
+        for(int u = 0; u < n; u++) floors[u] = (int) z[u];
+        CampusGraph campusGraph = new CampusGraph(offsets, neighbours, lengths, flags, x, y, floors);
+        if(listener != null) listener.onGraphRead(campusGraph);
+
+        List<MapNode> nodeList = new ArrayList<>(n);
+        Set<Integer> floorSet = new HashSet<>();
+        for(int u = 0; u < n; u++) {
+            nodeList.add(new MapNode(u, new Vec3D(x[u], y[u], z[u])));
+            floorSet.add(floors[u]);
+        }
+
+        Infratype[] infratypes = Infratype.values();
+        Orientation[] orientations = Orientation.values();
+        int infraCount = buffer.getInt();
+        List<Infra> infraList = new ArrayList<>(infraCount);
+        Map<MapNode, List<Integer>> nodeToInfra = new HashMap<>();
+        int[] floorChangerPairs = new int[infraCount];
+        Arrays.fill(floorChangerPairs, -1);
+
+        for(int id = 0; id < infraCount; id++) {
+            byte kind = buffer.get();
+            String name = strings[buffer.getInt()];
+            Infratype infratype = infratypes[buffer.get()];
+            Orientation orientation = orientations[buffer.get()];
+            MapNode node = nodeList.get(buffer.getInt());
+
+            Infra infra;
+            if(kind == KIND_FLOOR_CHANGER) {
+                Vec3D otherEnd = new Vec3D(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+                boolean accessible = buffer.get() != 0;
+                int index = buffer.getInt();
+                floorChangerPairs[id] = buffer.getInt();
+
+                infra = new FloorChanger(name, id, orientation, node, node.getPosition(), otherEnd, infratype, accessible, index);
+            }
+            else {
+                infra = new Infra(name, id, node.getPosition(), infratype, orientation, node);
+            }
+
+            infraList.add(infra);
+            if(!nodeToInfra.containsKey(node)) nodeToInfra.put(node, new ArrayList<>());
+            nodeToInfra.get(node).add(id);
+        }
+
+        int referenceCount = buffer.getInt();
+        Map<String, MapNode> referencePoints = new HashMap<>();
+        for(int i = 0; i < referenceCount; i++) {
+            String name = strings[buffer.getInt()];
+            referencePoints.put(name, nodeList.get(buffer.getInt()));
+        }
+
+        return new MapData(referencePoints, nodeList, infraList, nodeToInfra, floorSet, floorChangerPairs, campusGraph);
+    }
+
+    private static int stringId(Map<String, Integer> strings, String str) {
+        Integer id = strings.get(str);
+        if(id == null) {
+            id = strings.size();
+            strings.put(str, id);
+        }
+        return id;
+    }
+
+    static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4*count);
+        return values;
+    }
+
+    private static double[] readDoubles(ByteBuffer buffer, int count) {
+        double[] values = new double[count];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + 8*count);
+        return values;
+    }
+
+    static byte[] readFully(InputStream in) throws IOException {
+        byte[] bytes = new byte[Math.max(in.available(), 8192)];
+        int size = 0;
+        int read;
+        while((read = in.read(bytes, size, bytes.length-size)) != -1) {
+            size += read;
+            if(size == bytes.length) bytes = Arrays.copyOf(bytes, bytes.length*2);
+        }
+        return size == bytes.length? bytes : Arrays.copyOf(bytes, size);
+    }
+}
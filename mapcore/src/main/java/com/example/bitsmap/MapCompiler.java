@@ -0,0 +1,37 @@
+package com.example.bitsmap;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// build time entry point: compiles the nodes.txt DSL into the MapBlob the app loads.
+// usage: MapCompiler <nodes.txt> <map.bin>
+public class MapCompiler {
+
+    public static void main(String[] args) throws IOException {
+        if(args.length != 2) {
+            System.err.println("usage: MapCompiler <nodes.txt> <map.bin>");
+            System.exit(1);
+        }
+
+        MapData mapData;
+        try(InputStream in = new FileInputStream(args[0])) {
+            mapData = new MapParser().parse(in);
+        }
+
+        File output = new File(args[1]);
+        File parent = output.getParentFile();
+        if(parent != null && !parent.isDirectory() && !parent.mkdirs()) throw new IOException("Can't create " + parent);
+
+        try(OutputStream out = new BufferedOutputStream(new FileOutputStream(output))) {
+            MapBlob.write(mapData, out);
+        }
+
+        System.out.println("Compiled " + mapData.getNodeList().size() + " nodes, " + mapData.getCampusGraph().getEdgeCount()
+                + " edges and " + mapData.getInfraList().size() + " infra into " + output + " (" + output.length() + " bytes)");
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.bitsmap;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// everything parsed out of nodes.txt: the node graph, the infra on it and the floors it spans.
+// The graph is only kept as the CampusGraph, MapParser has the adjacency lists it was built from.
+// A MapData is never modified once built, so it can be handed from the loader thread to the UI as is.
+public class MapData {
+
+    private final Map<String, MapNode> referencePoints;
+    private final List<MapNode> nodeList;
+    private final List<Infra> infraList;
+    private final Map<MapNode, List<Integer>> nodeToInfra;
+    private final Set<Integer> floorSet;
+    private final int[] floorChangerPairs;
+    private final CampusGraph campusGraph;
+
+    public MapData(Map<String, MapNode> referencePoints, List<MapNode> nodeList, List<Infra> infraList,
+                   Map<MapNode, List<Integer>> nodeToInfra, Set<Integer> floorSet,
+                   int[] floorChangerPairs, CampusGraph campusGraph) {
+        this.referencePoints = Collections.unmodifiableMap(referencePoints);
+        this.nodeList = Collections.unmodifiableList(nodeList);
+        this.infraList = Collections.unmodifiableList(infraList);
+        this.nodeToInfra = Collections.unmodifiableMap(nodeToInfra);
+        this.floorSet = Collections.unmodifiableSet(floorSet);
+        this.floorChangerPairs = floorChangerPairs;
+        this.campusGraph = campusGraph;
+    }
+
+    public Map<String, MapNode> getReferencePoints() { return referencePoints; }
+    public List<MapNode> getNodeList() { return nodeList; }
+    public List<Infra> getInfraList() { return infraList; }
+    public Map<MapNode, List<Integer>> getNodeToInfra() { return nodeToInfra; }
+    public Set<Integer> getFloorSet() { return floorSet; }
+    // indexed by infra id, the id of the floor changer at the other end or -1
+    public int[] getFloorChangerPairs() { return floorChangerPairs; }
+    public CampusGraph getCampusGraph() { return campusGraph; }
+}
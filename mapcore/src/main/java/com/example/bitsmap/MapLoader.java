@@ -0,0 +1,41 @@
+package com.example.bitsmap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Executor;
+
+// Loads a MapBlob on a background executor and hands the results to the listener on the ui executor.
+// The graph is published first so the map can be drawn while the infra is still being built.
+public class MapLoader {
+
+    public interface Source {
+        InputStream open() throws IOException;
+    }
+
+    public interface Listener {
+        void onGraphReady(CampusGraph graph);
+        void onMapReady(MapData mapData);
+        // an unreadable source, or a blob that is corrupt or from another version
+        void onLoadFailed(Exception e);
+    }
+
+    private final Executor backgroundExecutor;
+    private final Executor uiExecutor;
+
+    public MapLoader(Executor backgroundExecutor, Executor uiExecutor) {
+        this.backgroundExecutor = backgroundExecutor;
+        this.uiExecutor = uiExecutor;
+    }
+
+    public void load(Source source, Listener listener) {
+        backgroundExecutor.execute(() -> {
+            try(InputStream in = source.open()) {
+                MapData mapData = MapBlob.read(in, graph -> uiExecutor.execute(() -> listener.onGraphReady(graph)));
+                uiExecutor.execute(() -> listener.onMapReady(mapData));
+            } catch(IOException | RuntimeException e) {
+                // a damaged blob can fail anywhere while reading, not only with an IOException
+                uiExecutor.execute(() -> listener.onLoadFailed(e));
+            }
+        });
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.bitsmap;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeMap;
+
+// turns the nodes.txt description of the campus into a MapData.
+// For floor changer nodes, make sure the other Delta corresponds to the actual node.
+// Each floorchanger node connects to only its directly upper and lower neighbours
+public class MapParser {
+
+    private final Map<String, MapNode> referencePoints;
+    private final List<MapNode> nodeList;
+    private final Map<Vec3D, MapNode> nodeMap;
+    private final List<Infra> infraList;
+    private final Map<Infratype, Map<Integer, Map<Double, FloorChanger>>> floorChangerMap;
+    private final Map<MapNode, List<Integer>> nodeToInfra;
+    private final Map<MapNode, List<MapNode>> graph;
+    private final Set<Integer> floorSet;
+    private MapNode lastNode;
+
+    public MapParser() {
+        referencePoints = new HashMap<>();
+        nodeList = new ArrayList<>();
+        nodeMap = new TreeMap<>();
+        infraList = new ArrayList<>();
+        nodeToInfra = new HashMap<>();
+        floorChangerMap = new HashMap<>();
+        graph = new HashMap<>();
+        floorSet = new HashSet<>();
+    }
+
+    public MapData parse(InputStream in) {
+        Scanner sc = new Scanner(in);
+
+        Vec3D curPos = new Vec3D(0, 0, 1);
+        addNodeToList(curPos);
+
+        while(sc.hasNextLine()) {
+            String line = sc.nextLine();
+
+            if(line.endsWith(":")) {
+                referencePoints.put(line.substring(0, line.length()-1), lastNode);
+            }
+            else if(line.startsWith("U ") || line.startsWith("R ") || line.startsWith("L ") || line.startsWith("D ")) {
+                char direction = line.charAt(0);
+                line = line.substring(2);
+
+                String[] params = line.split(" ");
+
+                if(Character.isDigit(line.charAt(0))) {
+                    double magnitude = Double.parseDouble(params[0]);
+                    curPos = moveVector(direction, curPos, magnitude);
+
+                    MapNode oldNode = lastNode;
+                    addNodeToList(curPos);
+                    MapNode newNode = lastNode;
+
+                    connectNodes(oldNode, newNode);
+                }
+                else {
+                    String infraType = params[0];
+                    Infra infra = null;
+                    Orientation orientation = getOrientation(direction);
+
+                    if(infraType.equals("Room")) {
+                        String roomName = getRoomName(params);
+                        infra = new Infra(roomName, infraList.size(), curPos, Infratype.Room, orientation, lastNode);
+                        infraList.add(infra);
+                    }
+                    else if(infraType.equals("Stairs") || infraType.equals("Lift")) {
+                        infra = handleFloorChanger(params, orientation, curPos);
+                    }
+                    else if(infraType.equals("Washroom")) {
+                        String washroomType = params[1];
+                        infra = new Infra("Washroom" + washroomType, infraList.size(), curPos, Infratype.Washroom, orientation, lastNode);
+                        infraList.add(infra);
+                    }
+                    else {
+                        infra = new Infra(infraType, infraList.size(), curPos, Infratype.DrinkingWater, orientation, lastNode);
+                        infraList.add(infra);
+                    }
+
+
+                    if(!nodeToInfra.containsKey(lastNode)) {
+                        nodeToInfra.put(lastNode, new ArrayList<>());
+                    }
+
+                    nodeToInfra.get(lastNode).add(infra.getId());
+                }
+            }
+            else if(line.startsWith("CLIMB")) {
+                line = line.substring(6);
+                String[] params = line.split(" ");
+                curPos = climbFloorChanger(params, curPos.getZ());
+                addNodeToList(curPos);
+            }
+            else if(line.startsWith("Connect")) {
+                MapNode refPoint = referencePoints.get(line.split(" ")[1]);
+
+                connectNodes(lastNode, refPoint);
+            }
+            else if(line.startsWith("Goto")) {
+                MapNode refPoint = referencePoints.get(line.split(" ")[1]);
+                curPos = refPoint.getPosition();
+                lastNode = refPoint;
+            }
+        }
+
+        int[] floorChangerPairs = new int[infraList.size()];
+        Arrays.fill(floorChangerPairs, -1);
+        connectFloorChangers(floorChangerPairs);
+
+        CampusGraph campusGraph = new CampusGraph(nodeList, graph, nodeToInfra, infraList);
+
+        return new MapData(referencePoints, nodeList, infraList, nodeToInfra, floorSet, floorChangerPairs, campusGraph);
+    }
+
+    // the adjacency lists and floor changers the last parse was built from, for checking against
+    Map<MapNode, List<MapNode>> getGraph() { return graph; }
+    Map<Infratype, Map<Integer, Map<Double, FloorChanger>>> getFloorChangerMap() { return floorChangerMap; }
+
+    private void addNodeToList(Vec3D pos) {
+        if(!nodeMap.containsKey(pos)) {
+            MapNode n = new MapNode(nodeList.size(), pos);
+            nodeList.add(n);
+            nodeMap.put(pos, n);
+        }
+
+        lastNode = nodeMap.get(pos);
+
+        floorSet.add((int)pos.getZ());
+    }
+
+    private static String getRoomName(String[] params) {
+        String str = "";
+        for(int i = 1; i < params.length; i++) str += params[i] + " ";
+        str = str.trim();
+        return str;
+    }
+
+    private static Orientation getOrientation(char direction) {
+        if(direction == 'U') return Orientation.Up;
+        if(direction == 'L') return Orientation.Left;
+        if(direction == 'D') return Orientation.Down;
+        return Orientation.Right;
+    }
+
+    private static Vec3D moveVector(char direction, Vec3D curPos, double magnitude) {
+        if(direction == 'U') curPos = curPos.add(new Vec3D(0, magnitude, 0));
+        else if(direction == 'L') curPos = curPos.add(new Vec3D(-magnitude, 0, 0));
+        else if(direction == 'D') curPos = curPos.add(new Vec3D(0, -magnitude, 0));
+        else curPos = curPos.add(new Vec3D(magnitude, 0, 0));
+
+        return curPos;
+    }
+
+    private Vec3D climbFloorChanger(String[] params, double currentFloor) {
+        String direction = params[0];
+        String floorChangerType = params[1];
+        int floorChangerIndex = Integer.parseInt(params[2]);
+
+        Infratype infratype = null;
+        if(floorChangerType.equals("Stairs")) {
+            if(direction.equals("Up")) infratype = Infratype.StairsUp;
+            else if(direction.equals("Down")) infratype = Infratype.StairsDown;
+        }
+        else if(floorChangerType.equals("Lift")) {
+            if(direction.equals("Up")) infratype = Infratype.LiftUp;
+            else if(direction.equals("Down")) infratype = Infratype.LiftDown;
+        }
+
+        FloorChanger fc = floorChangerMap.get(infratype).get(floorChangerIndex).get(currentFloor);
+
+        return fc.getOtherEnd();
+    }
+
+    private FloorChanger handleFloorChanger(String[] params, Orientation orientation, Vec3D position) {
+        FloorChanger fc;
+
+        String name = "";
+        Infratype infratype = null;
+        int index = Integer.parseInt(params[1]);
+        boolean accessible;
+        double xd, yd, zd = 0;
+
+        if(params[0].equals("Stairs")) {
+            if(params[2].equals("Up")) {
+                infratype = Infratype.StairsUp;
+                zd = 1;
+            }
+            else {
+                infratype = Infratype.StairsDown;
+                zd = -1;
+            }
+        }
+        else if(params[0].equals("Lift")) {
+            if(params[2].equals("Up")) {
+                infratype = Infratype.LiftUp;
+                zd = 1;
+            }
+            else {
+                infratype = Infratype.LiftDown;
+                zd = -1;
+            }
+        }
+
+        name += params[0] + params[2] + params[1];
+
+        accessible = !params[3].equals("NoRamp");
+        xd = Double.parseDouble(params[4]);
+        yd = Double.parseDouble(params[5]);
+        Vec3D otherEnd = position.add(new Vec3D(xd, yd, zd));
+
+        fc = new FloorChanger(name, infraList.size(), orientation, lastNode, position, otherEnd, infratype, accessible, index);
+        infraList.add(fc);
+        if(!floorChangerMap.containsKey(infratype)) floorChangerMap.put(infratype, new HashMap<>());
+        Map<Integer, Map<Double, FloorChanger>> tmp = floorChangerMap.get(infratype);
+        if(!tmp.containsKey(index)) tmp.put(index, new HashMap<>());
+        tmp.get(index).put(fc.getPosition().getZ(), fc);
+
+        return fc;
+    }
+
+    private void connectNodes(MapNode n1, MapNode n2) {
+        if(!graph.containsKey(n1)) graph.put(n1, new ArrayList<>());
+        if(!graph.containsKey(n2)) graph.put(n2, new ArrayList<>());
+
+        graph.get(n1).add(n2);
+        graph.get(n2).add(n1);
+    }
+
+    private void connectFloorChangers(int[] floorChangerPairs) {
+        for(Infratype infratype : floorChangerMap.keySet()) {
+            Map<Integer, Map<Double, FloorChanger>> indexFloorChangers = floorChangerMap.get(infratype);
+            for(Integer index : indexFloorChangers.keySet()) {
+                Map<Double, FloorChanger> floorFloorChangers = indexFloorChangers.get(index);
+                for(Double z : floorFloorChangers.keySet()) {
+                    FloorChanger fc = floorFloorChangers.get(z);
+
+                    Map<Integer, Map<Double, FloorChanger>> otherIndexFloorChangers;
+                    Map<Double, FloorChanger> otherFloorFloorChangers;
+
+                    Infratype otherInfraType = null;
+                    int otherIndex = index;
+                    double otherFloor = fc.getPosition().getZ();
+
+                    if(infratype == Infratype.LiftUp) {
+                        otherInfraType = Infratype.LiftDown;
+                        otherFloor += 1;
+                    }
+                    else if(infratype == Infratype.LiftDown) {
+                        otherInfraType = Infratype.LiftUp;
+                        otherFloor -= 1;
+                    }
+                    else if(infratype == Infratype.StairsUp) {
+                        otherInfraType = Infratype.StairsDown;
+                        otherFloor += 1;
+                    }
+                    else if(infratype == Infratype.StairsDown) {
+                        otherInfraType = Infratype.StairsUp;
+                        otherFloor -= 1;
+                    }
+
+                    otherIndexFloorChangers = floorChangerMap.get(otherInfraType);
+
+                    if(otherIndexFloorChangers != null) {
+                        otherFloorFloorChangers = otherIndexFloorChangers.get(otherIndex);
+                        if(otherFloorFloorChangers != null) {
+                            FloorChanger otherFc = otherFloorFloorChangers.get(otherFloor);
+
+                            if(otherFc != null) {
+                                connectNodes(fc.getMapNode(), otherFc.getMapNode());
+                                floorChangerPairs[fc.getId()] = otherFc.getId();
+                                assert(fc.getPosition().equals(otherFc.getOtherEnd()));
+                                assert(otherFc.getPosition().equals(fc.getOtherEnd()));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
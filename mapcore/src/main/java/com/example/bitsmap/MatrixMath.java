@@ -0,0 +1,42 @@
+package com.example.bitsmap;
+
+// The 3x3 matrix maths behind MapView's worldToScreen, on the row major float[9] that
+// android.graphics.Matrix.getValues fills in, so it can be tested and benchmarked off device.
+public class MatrixMath {
+
+    // maps the homogeneous point p = {x, y, 1} through m in place
+    public static void mapPoint(float[] m, float[] p) {
+        float x = m[0]*p[0] + m[1]*p[1] + m[2]*p[2];
+        float y = m[3]*p[0] + m[4]*p[1] + m[5]*p[2];
+        float w = m[6]*p[0] + m[7]*p[1] + m[8]*p[2];
+        p[0] = x/w;
+        p[1] = y/w;
+    }
+
+    // writes the inverse of m into out, returns false and leaves out alone if m is singular
+    public static boolean invert(float[] m, float[] out) {
+        float c0 = m[4]*m[8] - m[5]*m[7];
+        float c1 = m[5]*m[6] - m[3]*m[8];
+        float c2 = m[3]*m[7] - m[4]*m[6];
+        float det = m[0]*c0 + m[1]*c1 + m[2]*c2;
+        if(det == 0) return false;
+
+        float inv = 1/det;
+        float o1 = (m[2]*m[7] - m[1]*m[8]) * inv;
+        float o2 = (m[1]*m[5] - m[2]*m[4]) * inv;
+        float o4 = (m[0]*m[8] - m[2]*m[6]) * inv;
+        float o5 = (m[2]*m[3] - m[0]*m[5]) * inv;
+        float o7 = (m[1]*m[6] - m[0]*m[7]) * inv;
+        float o8 = (m[0]*m[4] - m[1]*m[3]) * inv;
+        out[0] = c0 * inv;
+        out[1] = o1;
+        out[2] = o2;
+        out[3] = c1 * inv;
+        out[4] = o4;
+        out[5] = o5;
+        out[6] = c2 * inv;
+        out[7] = o7;
+        out[8] = o8;
+        return true;
+    }
+}
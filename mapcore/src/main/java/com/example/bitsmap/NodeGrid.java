@@ -0,0 +1,158 @@
+package com.example.bitsmap;
+
+// Uniform grid over the node positions of a CampusGraph, one grid per floor, for hit testing.
+// Cells are sized so a floor holds about one node per cell, so looking up the nodes near a point
+// only touches a handful of cells however big the map gets.
+// The nodes of cell c on floor f are cellNodes[cellStart[cellBase[f]+c] .. cellStart[cellBase[f]+c+1]-1].
+public class NodeGrid {
+
+    private static final double MIN_CELL_SIZE = 1;
+
+    private final CampusGraph graph;
+    private final int minFloor;
+
+    private final double[] originX, originY, cellSize;
+    private final int[] cols, rows;
+    private final int[] cellBase;
+    private final int[] cellStart;
+    private final int[] cellNodes;
+
+    public NodeGrid(CampusGraph graph) {
+        this.graph = graph;
+        int n = graph.getNodeCount();
+        minFloor = graph.getMinFloor();
+        int floorCount = n == 0? 0 : graph.getMaxFloor() - minFloor + 1;
+
+        originX = new double[floorCount];
+        originY = new double[floorCount];
+        cellSize = new double[floorCount];
+        cols = new int[floorCount];
+        rows = new int[floorCount];
+        cellBase = new int[floorCount+1];
+
+        double[] maxX = new double[floorCount], maxY = new double[floorCount];
+        int[] count = new int[floorCount];
+        for(int f = 0; f < floorCount; f++) {
+            originX[f] = originY[f] = Double.POSITIVE_INFINITY;
+            maxX[f] = maxY[f] = Double.NEGATIVE_INFINITY;
+        }
+        for(int u = 0; u < n; u++) {
+            int f = graph.getFloor(u) - minFloor;
+            originX[f] = Math.min(originX[f], graph.getX(u));
+            originY[f] = Math.min(originY[f], graph.getY(u));
+            maxX[f] = Math.max(maxX[f], graph.getX(u));
+            maxY[f] = Math.max(maxY[f], graph.getY(u));
+            count[f]++;
+        }
+
+        for(int f = 0; f < floorCount; f++) {
+            if(count[f] > 0) {
+                double w = maxX[f] - originX[f], h = maxY[f] - originY[f];
+                cellSize[f] = Math.max(MIN_CELL_SIZE, Math.sqrt(w*h / count[f]));
+                cols[f] = (int) (w / cellSize[f]) + 1;
+                rows[f] = (int) (h / cellSize[f]) + 1;
+            }
+            cellBase[f+1] = cellBase[f] + cols[f]*rows[f];
+        }
+
+        // counting sort of the nodes by cell
+        cellStart = new int[cellBase[floorCount]+1];
+        int[] cellOf = new int[n];
+        for(int u = 0; u < n; u++) {
+            int f = graph.getFloor(u) - minFloor;
+            int cx = (int) ((graph.getX(u) - originX[f]) / cellSize[f]);
+            int cy = (int) ((graph.getY(u) - originY[f]) / cellSize[f]);
+            cellOf[u] = cellBase[f] + cy*cols[f] + cx;
+            cellStart[cellOf[u]+1]++;
+        }
+        for(int c = 0; c+1 < cellStart.length; c++) cellStart[c+1] += cellStart[c];
+
+        cellNodes = new int[n];
+        int[] fill = new int[cellStart.length];
+        for(int u = 0; u < n; u++) {
+            int c = cellOf[u];
+            cellNodes[cellStart[c] + fill[c]++] = u;
+        }
+    }
+
+    // the node on the given floor closest to (x, y) and strictly closer than maxDist, or -1.
+    // Searches outwards ring by ring and stops once no unvisited cell can hold anything closer.
+    public int nearest(double x, double y, int floor, double maxDist) {
+        int f = floor - minFloor;
+        if(f < 0 || f >= cols.length || cols[f] == 0) return -1;
+
+        double cs = cellSize[f];
+        int cx = (int) Math.floor((x - originX[f]) / cs);
+        int cy = (int) Math.floor((y - originY[f]) / cs);
+        int lastCol = cols[f]-1, lastRow = rows[f]-1;
+
+        // rings closer than this don't overlap the grid at all
+        int r = Math.max(Math.max(0, Math.max(-cx, cx - lastCol)), Math.max(-cy, cy - lastRow));
+        int maxR = Math.max(Math.max(cx, lastCol - cx), Math.max(cy, lastRow - cy));
+
+        int best = -1;
+        double bestDist2 = maxDist*maxDist;
+        for(; r <= maxR; r++) {
+            // everything in ring r is at least (r-1) cells away
+            double ringDist = (r-1) * cs;
+            if(r > 0 && ringDist*ringDist >= bestDist2) break;
+
+            int i0 = Math.max(cx-r, 0), i1 = Math.min(cx+r, lastCol);
+            int j0 = Math.max(cy-r, 0), j1 = Math.min(cy+r, lastRow);
+            for(int j = j0; j <= j1; j++) {
+                boolean edgeRow = j == cy-r || j == cy+r;
+                for(int i = i0; i <= i1; i++) {
+                    if(!edgeRow && i != cx-r && i != cx+r) {
+                        // skip the inside of the ring, it was searched already
+                        if(cx+r > i1) break;
+                        i = cx+r-1;
+                        continue;
+                    }
+
+                    int c = cellBase[f] + j*cols[f] + i;
+                    for(int k = cellStart[c]; k < cellStart[c+1]; k++) {
+                        int u = cellNodes[k];
+                        double dx = graph.getX(u)-x, dy = graph.getY(u)-y;
+                        double d2 = dx*dx + dy*dy;
+                        if(d2 < bestDist2) {
+                            bestDist2 = d2;
+                            best = u;
+                        }
+                    }
+                }
+            }
+        }
+
+        return best;
+    }
+
+    // writes the nodes on the given floor within radius of (x, y) into out, as many as fit,
+    // and returns how many there are in total
+    public int within(double x, double y, int floor, double radius, int[] out) {
+        int f = floor - minFloor;
+        if(f < 0 || f >= cols.length || cols[f] == 0) return 0;
+
+        double cs = cellSize[f];
+        int i0 = Math.max(0, (int) Math.floor((x - radius - originX[f]) / cs));
+        int i1 = Math.min(cols[f]-1, (int) Math.floor((x + radius - originX[f]) / cs));
+        int j0 = Math.max(0, (int) Math.floor((y - radius - originY[f]) / cs));
+        int j1 = Math.min(rows[f]-1, (int) Math.floor((y + radius - originY[f]) / cs));
+
+        int found = 0;
+        double radius2 = radius*radius;
+        for(int j = j0; j <= j1; j++) {
+            for(int i = i0; i <= i1; i++) {
+                int c = cellBase[f] + j*cols[f] + i;
+                for(int k = cellStart[c]; k < cellStart[c+1]; k++) {
+                    int u = cellNodes[k];
+                    double dx = graph.getX(u)-x, dy = graph.getY(u)-y;
+                    if(dx*dx + dy*dy > radius2) continue;
+                    if(found < out.length) out[found] = u;
+                    found++;
+                }
+            }
+        }
+
+        return found;
+    }
+}
@@ -0,0 +1,360 @@
+package com.example.bitsmap;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Dijkstra over the CampusGraph with an indexed binary heap (decrease-key instead of duplicate entries).
+// The per query arrays are reused: an entry only counts for the current query if its stamp
+// matches the current generation, so nothing is refilled.
+// With A* on, nodes are ordered by dist + a lower bound of the remaining distance: the planar
+// distance to the target plus the least extra length any floor change between the two floors costs.
+// Routing with a RoutingProfile uses its costs instead of the edge lengths, which are never less than
+// the lengths so the same estimate still holds.
+// In bidirectional mode a second Dijkstra runs backwards from the target over the reversed edges,
+// always growing the side with the nearer frontier, and stops once the two frontiers together can't
+// beat the best meeting found. It takes precedence over A*, and needs every edge to have a reverse,
+// which connectNodes guarantees; on a graph with one way edges it quietly searches one way instead.
+public class PathFinder {
+
+    private final List<MapNode> nodeList;
+    private final CampusGraph graph;
+    private final double[] climbBound;
+    // reverseEdge[e] is the edge going back the other way, -1 if there is none
+    private final int[] reverseEdge;
+    private final boolean symmetric;
+
+    private final Frontier forward, backward;
+    private final double[] estimate;
+
+    private boolean useAStar;
+    private boolean bidirectional;
+    private int settledCount;
+
+    public PathFinder(List<MapNode> nodeList, CampusGraph graph) {
+        this.nodeList = nodeList;
+        this.graph = graph;
+        int n = graph.getNodeCount();
+        climbBound = computeClimbBound();
+
+        reverseEdge = new int[graph.getEdgeCount()];
+        boolean allReversed = true;
+        for(int u = 0; u < n; u++) {
+            for(int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+                int v = graph.getNeighbour(e);
+                reverseEdge[e] = -1;
+                for(int r = graph.getEdgeStart(v); r < graph.getEdgeEnd(v) && reverseEdge[e] == -1; r++) {
+                    if(graph.getNeighbour(r) == u) reverseEdge[e] = r;
+                }
+                allReversed &= reverseEdge[e] != -1;
+            }
+        }
+        symmetric = allReversed;
+
+        forward = new Frontier(n);
+        backward = new Frontier(n);
+        estimate = new double[n];
+    }
+
+    // climbBound[f] is a lower bound on the extra length (over the planar distance) of getting
+    // from the lowest floor to floor f, so |climbBound[a] - climbBound[b]| never overestimates.
+    private double[] computeClimbBound() {
+        int minFloor = graph.getMinFloor();
+        int floors = graph.getNodeCount() == 0? 0 : graph.getMaxFloor()-minFloor+1;
+        double[] perFloor = new double[Math.max(floors-1, 0)];
+        Arrays.fill(perFloor, Double.POSITIVE_INFINITY);
+
+        for(int u = 0; u < graph.getNodeCount(); u++) {
+            for(int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+                if(graph.hasFlag(e, CampusGraph.SAME_FLOOR)) continue;
+
+                int v = graph.getNeighbour(e);
+                int lo = Math.min(graph.getFloor(u), graph.getFloor(v)) - minFloor;
+                int hi = Math.max(graph.getFloor(u), graph.getFloor(v)) - minFloor;
+
+                double dx = graph.getX(u)-graph.getX(v), dy = graph.getY(u)-graph.getY(v);
+                double planar = Math.sqrt(dx*dx + dy*dy);
+                double extra = Math.max(0, graph.getLength(e) - planar) / (hi-lo);
+                for(int f = lo; f < hi; f++) perFloor[f] = Math.min(perFloor[f], extra);
+            }
+        }
+
+        double[] bound = new double[floors];
+        for(int f = 1; f < floors; f++) {
+            // floors with no connection between them can't be crossed anyway
+            double extra = perFloor[f-1] == Double.POSITIVE_INFINITY? 0 : perFloor[f-1];
+            bound[f] = bound[f-1] + extra;
+        }
+        return bound;
+    }
+
+    public List<MapNode> getNodeList() { return nodeList; }
+    public CampusGraph getGraph() { return graph; }
+
+    public void setUseAStar(boolean useAStar) { this.useAStar = useAStar; }
+    public boolean isUsingAStar() { return useAStar; }
+    public void setBidirectional(boolean bidirectional) { this.bidirectional = bidirectional; }
+    public boolean isBidirectional() { return bidirectional; }
+
+    // number of nodes taken off the heap by the last query
+    public int getSettledCount() { return settledCount; }
+
+    // Fills path with the shortest route from source to target and returns its length.
+    // If target can't be reached path is left empty and POSITIVE_INFINITY is returned.
+    // Only edges the mask allows are used, a null mask allows every edge.
+    public double findPath(MapNode source, MapNode target, EdgeMask mask, List<MapNode> path) {
+        return search(source, target, mask, null, path);
+    }
+
+    // the cheapest route for a profile, returning its cost rather than its length
+    public double findPath(MapNode source, MapNode target, RoutingProfile.Weights weights, List<MapNode> path) {
+        if(weights.getGraph() != graph) throw new IllegalArgumentException("Weights are for a different graph");
+        return search(source, target, weights.getMask(), weights.getCosts(), path);
+    }
+
+    // Routes from source to every node it can reach: parentsOut[v] is the node before v on the
+    // cheapest route and distOut[v] its cost. The source and unreachable nodes get a parent of -1,
+    // unreachable ones a cost of POSITIVE_INFINITY.
+    public void shortestPathTree(MapNode source, RoutingProfile.Weights weights, int[] parentsOut, double[] distOut) {
+        if(weights.getGraph() != graph) throw new IllegalArgumentException("Weights are for a different graph");
+        settledCount = 0;
+        run(source.getId(), -1, null, weights.getMask(), weights.getCosts());
+
+        for(int v = 0; v < graph.getNodeCount(); v++) {
+            boolean reached = forward.reached(v);
+            parentsOut[v] = reached? forward.parents[v] : -1;
+            distOut[v] = reached? forward.dist[v] : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    // Fills path with the cheapest route from source to whichever node with isTarget set is nearest,
+    // in one search that stops as soon as the first of them is settled. Returns its cost, or
+    // POSITIVE_INFINITY with path left empty if none can be reached.
+    public double findNearest(MapNode source, boolean[] isTarget, RoutingProfile.Weights weights, List<MapNode> path) {
+        if(weights.getGraph() != graph) throw new IllegalArgumentException("Weights are for a different graph");
+        path.clear();
+        settledCount = 0;
+        int t = run(source.getId(), -1, isTarget, weights.getMask(), weights.getCosts());
+        if(t == -1) return Double.POSITIVE_INFINITY;
+
+        for(int v = t; v != -1; v = forward.parents[v]) path.add(nodeList.get(v));
+        reverse(path);
+        return forward.dist[t];
+    }
+
+    private double search(MapNode source, MapNode target, EdgeMask mask, double[] costs, List<MapNode> path) {
+        path.clear();
+        settledCount = 0;
+        int t = target.getId();
+        if(bidirectional && symmetric) return searchBothWays(source.getId(), t, mask, costs, path);
+
+        run(source.getId(), t, null, mask, costs);
+        if(!forward.reached(t) || !forward.settled[t]) return Double.POSITIVE_INFINITY;
+
+        for(int v = t; v != -1; v = forward.parents[v]) path.add(nodeList.get(v));
+        reverse(path);
+        return forward.dist[t];
+    }
+
+    // Settles nodes from s until t or any node in targets is settled, and returns that node.
+    // With neither, everything reachable is settled and -1 is returned.
+    private int run(int s, int t, boolean[] targets, EdgeMask mask, double[] costs) {
+        forward.newGeneration();
+        touch(s, t);
+        forward.dist[s] = 0;
+        forward.key[s] = estimate[s];
+        forward.push(s);
+
+        while(forward.heapSize > 0) {
+            int u = forward.pop();
+            settledCount++;
+            if(u == t || (targets != null && targets[u])) return u;
+
+            for(int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+                int v = graph.getNeighbour(e);
+                double d = forward.dist[u] + (costs == null? graph.getLength(e) : costs[e]);
+
+                if(forward.reached(v) && (forward.settled[v] || forward.dist[v] <= d)) continue;
+                if(mask != null && !mask.allows(e)) continue;
+
+                if(!forward.reached(v)) touch(v, t);
+                forward.update(v, d, d + estimate[v], u);
+            }
+        }
+        return -1;
+    }
+
+    private double searchBothWays(int s, int t, EdgeMask mask, double[] costs, List<MapNode> path) {
+        forward.newGeneration();
+        backward.newGeneration();
+        forward.start(s);
+        backward.start(t);
+
+        double best = s == t? 0 : Double.POSITIVE_INFINITY;
+        int meet = s == t? s : -1;
+        while(forward.heapSize > 0 && backward.heapSize > 0) {
+            if(forward.topKey() + backward.topKey() >= best) break;
+
+            boolean forwards = forward.topKey() <= backward.topKey();
+            Frontier near = forwards? forward : backward;
+            Frontier far = forwards? backward : forward;
+            int u = near.pop();
+            settledCount++;
+
+            for(int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+                int v = graph.getNeighbour(e);
+                // going backwards u is reached from v, over the edge v -> u
+                int edge = forwards? e : reverseEdge[e];
+                if(near.reached(v) && near.settled[v]) continue;
+                if(mask != null && !mask.allows(edge)) continue;
+
+                double d = near.dist[u] + (costs == null? graph.getLength(edge) : costs[edge]);
+                if(!near.reached(v) || d < near.dist[v]) {
+                    if(!near.reached(v)) near.touch(v);
+                    near.update(v, d, d, u);
+                }
+                if(far.reached(v) && near.dist[v] + far.dist[v] < best) {
+                    best = near.dist[v] + far.dist[v];
+                    meet = v;
+                }
+            }
+        }
+
+        if(meet == -1) return Double.POSITIVE_INFINITY;
+
+        for(int v = meet; v != -1; v = forward.parents[v]) path.add(nodeList.get(v));
+        reverse(path);
+        for(int v = backward.parents[meet]; v != -1; v = backward.parents[v]) path.add(nodeList.get(v));
+        return best;
+    }
+
+    private static void reverse(List<MapNode> path) {
+        for(int i = 0, j = path.size()-1; i < j; i++, j--) {
+            MapNode tmp = path.get(i);
+            path.set(i, path.get(j));
+            path.set(j, tmp);
+        }
+    }
+
+    private void touch(int v, int target) {
+        forward.touch(v);
+        estimate[v] = useAStar && target != -1? remainingLowerBound(v, target) : 0;
+    }
+
+    private double remainingLowerBound(int v, int target) {
+        double dx = graph.getX(v)-graph.getX(target), dy = graph.getY(v)-graph.getY(target);
+        int minFloor = graph.getMinFloor();
+        return Math.sqrt(dx*dx + dy*dy) + Math.abs(climbBound[graph.getFloor(v)-minFloor] - climbBound[graph.getFloor(target)-minFloor]);
+    }
+
+    // one direction's search state: tentative distances, parents and the indexed heap ordered by key
+    private static class Frontier {
+        final double[] dist;
+        final double[] key;
+        final int[] parents;
+        final int[] stamps;
+        final boolean[] settled;
+        int generation;
+
+        final int[] heap;
+        final int[] heapPos;
+        int heapSize;
+
+        Frontier(int n) {
+            dist = new double[n];
+            key = new double[n];
+            parents = new int[n];
+            stamps = new int[n];
+            settled = new boolean[n];
+            heap = new int[n];
+            heapPos = new int[n];
+        }
+
+        void newGeneration() {
+            generation++;
+            if(generation == Integer.MAX_VALUE) {
+                // stamps would wrap around, start over from a clean slate
+                Arrays.fill(stamps, 0);
+                generation = 1;
+            }
+            heapSize = 0;
+        }
+
+        boolean reached(int v) { return stamps[v] == generation; }
+        double topKey() { return key[heap[0]]; }
+
+        void touch(int v) {
+            stamps[v] = generation;
+            settled[v] = false;
+            parents[v] = -1;
+            heapPos[v] = -1;
+        }
+
+        void start(int s) {
+            touch(s);
+            dist[s] = 0;
+            key[s] = 0;
+            push(s);
+        }
+
+        // v has been touched this query: lower its distance, or add it to the heap the first time
+        void update(int v, double d, double k, int parent) {
+            dist[v] = d;
+            key[v] = k;
+            parents[v] = parent;
+            if(heapPos[v] == -1) push(v);
+            else siftUp(heapPos[v]);
+        }
+
+        void push(int v) {
+            heap[heapSize] = v;
+            heapPos[v] = heapSize;
+            heapSize++;
+            siftUp(heapSize-1);
+        }
+
+        int pop() {
+            int top = heap[0];
+            heapSize--;
+            if(heapSize > 0) {
+                heap[0] = heap[heapSize];
+                heapPos[heap[0]] = 0;
+                siftDown(0);
+            }
+            settled[top] = true;
+            return top;
+        }
+
+        void siftUp(int i) {
+            int v = heap[i];
+            double k = key[v];
+            while(i > 0) {
+                int parent = (i-1) >>> 1;
+                int p = heap[parent];
+                if(key[p] <= k) break;
+                heap[i] = p;
+                heapPos[p] = i;
+                i = parent;
+            }
+            heap[i] = v;
+            heapPos[v] = i;
+        }
+
+        void siftDown(int i) {
+            int v = heap[i];
+            double k = key[v];
+            int half = heapSize >>> 1;
+            while(i < half) {
+                int child = 2*i + 1;
+                int right = child + 1;
+                if(right < heapSize && key[heap[right]] < key[heap[child]]) child = right;
+                int c = heap[child];
+                if(k <= key[c]) break;
+                heap[i] = c;
+                heapPos[c] = i;
+                i = child;
+            }
+            heap[i] = v;
+            heapPos[v] = i;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.bitsmap;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Remembers the last few routes between pairs of infra, per routing profile, as arrays of node ids.
+// Least recently used routes are dropped first once capacity is reached. Routes only make sense for
+// the graph they were found on, so everything is forgotten when a query comes in for another one.
+public class RouteCache {
+
+    private static class Key {
+        final int start, destination;
+        final RoutingProfile.Weights weights;
+
+        Key(int start, int destination, RoutingProfile.Weights weights) {
+            this.start = start;
+            this.destination = destination;
+            this.weights = weights;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return start == key.start && destination == key.destination && weights == key.weights;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31*(31*start + destination) + System.identityHashCode(weights);
+        }
+    }
+
+    private static class Route {
+        final int[] nodes;
+        final double cost;
+
+        Route(int[] nodes, double cost) {
+            this.nodes = nodes;
+            this.cost = cost;
+        }
+    }
+
+    private final int capacity;
+    private final LinkedHashMap<Key, Route> routes;
+    private CampusGraph graph;
+
+    private int hits, misses, evictions;
+
+    public RouteCache(int capacity) {
+        if(capacity <= 0) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        routes = new LinkedHashMap<Key, Route>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Route> eldest) {
+                if(size() <= RouteCache.this.capacity) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    // Same as pathFinder.findPath(start node, destination node, weights, path), answered from the
+    // cache when this pair was routed with these weights recently.
+    public double findPath(PathFinder pathFinder, Infra start, Infra destination, RoutingProfile.Weights weights, List<MapNode> path) {
+        bind(weights.getGraph());
+
+        Key key = new Key(start.getId(), destination.getId(), weights);
+        Route route = routes.get(key);
+        if(route != null) {
+            hits++;
+            List<MapNode> nodeList = pathFinder.getNodeList();
+            path.clear();
+            for(int id : route.nodes) path.add(nodeList.get(id));
+            return route.cost;
+        }
+
+        misses++;
+        double cost = pathFinder.findPath(start.getMapNode(), destination.getMapNode(), weights, path);
+        routes.put(key, new Route(nodeIds(path), cost));
+        return cost;
+    }
+
+    // Stores a route found some other way, so asking for it next is a hit.
+    // path has to be a route the weights allow, an empty one if destination can't be reached.
+    public void remember(Infra start, Infra destination, RoutingProfile.Weights weights, List<MapNode> path) {
+        bind(weights.getGraph());
+
+        routes.put(new Key(start.getId(), destination.getId(), weights), new Route(nodeIds(path), weights.pathCost(path)));
+    }
+
+    private void bind(CampusGraph campusGraph) {
+        if(campusGraph == graph) return;
+        routes.clear();
+        graph = campusGraph;
+    }
+
+    private static int[] nodeIds(List<MapNode> path) {
+        int[] nodes = new int[path.size()];
+        for(int i = 0; i < nodes.length; i++) nodes[i] = path.get(i).getId();
+        return nodes;
+    }
+
+    public void clear() {
+        routes.clear();
+        graph = null;
+    }
+
+    public int getSize() { return routes.size(); }
+    public int getCapacity() { return capacity; }
+    public int getHits() { return hits; }
+    public int getMisses() { return misses; }
+    public int getEvictions() { return evictions; }
+}
@@ -0,0 +1,147 @@
+package com.example.bitsmap;
+
+import java.util.List;
+
+// How one kind of visitor gets around: which edges they can use and what each one costs them.
+// Every cost is the edge length plus penalties that are never negative, so a route's cost is never
+// less than its length and the A* estimate in PathFinder stays a lower bound.
+// weigh() turns a profile into per edge arrays once per map, switching profiles doesn't redo any of it.
+public class RoutingProfile {
+
+    private final String name;
+
+    // only flat edges and ramps/lifts between accessible floor changers
+    private boolean stepFree;
+    // stairs without a ramp can't be used, lifts still can
+    private boolean avoidStairsWithoutRamp;
+    private double stairsPenalty;
+    private double stairsWithoutRampPenalty;
+    private double liftWait;
+
+    public RoutingProfile(String name) {
+        this.name = name;
+    }
+
+    // plain shortest routes, what the app always did on foot
+    public static RoutingProfile walking() {
+        return new RoutingProfile("walking");
+    }
+
+    // flat edges, and floor changes between two accessible floor changers
+    public static RoutingProfile wheelchair() {
+        RoutingProfile profile = new RoutingProfile("wheelchair");
+        profile.setStepFree(true);
+        return profile;
+    }
+
+    // deliveries and trolleys: lifts or ramps only, and a lift is worth a short walk to a ramp
+    public static RoutingProfile trolley() {
+        RoutingProfile profile = new RoutingProfile("trolley");
+        profile.setAvoidStairsWithoutRamp(true);
+        profile.setLiftWait(20);
+        return profile;
+    }
+
+    public String getName() { return name; }
+
+    public void setStepFree(boolean stepFree) { this.stepFree = stepFree; }
+    public void setAvoidStairsWithoutRamp(boolean avoidStairsWithoutRamp) { this.avoidStairsWithoutRamp = avoidStairsWithoutRamp; }
+    // added to every floor change by stairs
+    public void setStairsPenalty(double stairsPenalty) { this.stairsPenalty = checkPenalty(stairsPenalty); }
+    // added on top of the stairs penalty when the stairs have no ramp, to prefer ramps without ruling stairs out
+    public void setStairsWithoutRampPenalty(double stairsWithoutRampPenalty) { this.stairsWithoutRampPenalty = checkPenalty(stairsWithoutRampPenalty); }
+    // added to every floor change by lift
+    public void setLiftWait(double liftWait) { this.liftWait = checkPenalty(liftWait); }
+
+    public boolean isStepFree() { return stepFree; }
+    public boolean isAvoidingStairsWithoutRamp() { return avoidStairsWithoutRamp; }
+    public double getStairsPenalty() { return stairsPenalty; }
+    public double getStairsWithoutRampPenalty() { return stairsWithoutRampPenalty; }
+    public double getLiftWait() { return liftWait; }
+
+    private static double checkPenalty(double penalty) {
+        if(!(penalty >= 0)) throw new IllegalArgumentException("Penalty must not be negative: " + penalty);
+        return penalty;
+    }
+
+    public boolean allows(CampusGraph graph, int e) {
+        if(graph.hasFlag(e, CampusGraph.SAME_FLOOR)) return true;
+        boolean accessible = graph.hasFlag(e, CampusGraph.ACCESSIBLE);
+        if(stepFree && !accessible) return false;
+        return !avoidStairsWithoutRamp || accessible || !graph.hasFlag(e, CampusGraph.STAIRS) || graph.hasFlag(e, CampusGraph.LIFT);
+    }
+
+    public double cost(CampusGraph graph, int e) {
+        double cost = graph.getLength(e);
+        if(graph.hasFlag(e, CampusGraph.SAME_FLOOR)) return cost;
+
+        // an edge both kinds of floor changer join is taken by whichever is cheaper
+        double penalty = Double.POSITIVE_INFINITY;
+        if(graph.hasFlag(e, CampusGraph.STAIRS)) {
+            penalty = stairsPenalty + (graph.hasFlag(e, CampusGraph.ACCESSIBLE)? 0 : stairsWithoutRampPenalty);
+        }
+        if(graph.hasFlag(e, CampusGraph.LIFT)) penalty = Math.min(penalty, liftWait);
+        return penalty == Double.POSITIVE_INFINITY? cost : cost + penalty;
+    }
+
+    public Weights weigh(CampusGraph graph) {
+        return new Weights(this, graph);
+    }
+
+    // a profile worked out for one CampusGraph, what PathFinder routes with
+    public static class Weights {
+
+        private final RoutingProfile profile;
+        private final CampusGraph graph;
+        private final EdgeMask mask;
+        private final double[] costs;
+        private final long checksum;
+
+        private Weights(RoutingProfile profile, CampusGraph graph) {
+            this.profile = profile;
+            this.graph = graph;
+            mask = EdgeMask.fromProfile(graph, profile);
+            costs = new double[graph.getEdgeCount()];
+            for(int e = 0; e < costs.length; e++) costs[e] = profile.cost(graph, e);
+
+            // FNV-1a over everything a route depends on, so routes saved for other weights can be told apart
+            long hash = 0xcbf29ce484222325L;
+            hash = (hash ^ graph.getNodeCount()) * 0x100000001b3L;
+            for(int e = 0; e < costs.length; e++) {
+                hash = (hash ^ graph.getNeighbour(e)) * 0x100000001b3L;
+                hash = (hash ^ (mask.allows(e)? Double.doubleToLongBits(costs[e]) : -1)) * 0x100000001b3L;
+            }
+            for(int u = 0; u <= graph.getNodeCount(); u++) hash = (hash ^ graph.getEdgeStart(u)) * 0x100000001b3L;
+            checksum = hash;
+        }
+
+        public RoutingProfile getProfile() { return profile; }
+        public CampusGraph getGraph() { return graph; }
+        public EdgeMask getMask() { return mask; }
+        public double getCost(int e) { return costs[e]; }
+        public long getChecksum() { return checksum; }
+
+        double[] getCosts() { return costs; }
+
+        // the cheapest edge from u to v these weights allow, -1 if there is none
+        int edge(int u, int v) {
+            int best = -1;
+            for(int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+                if(graph.getNeighbour(e) == v && mask.allows(e) && (best == -1 || costs[e] < costs[best])) best = e;
+            }
+            return best;
+        }
+
+        // what a route costs, POSITIVE_INFINITY when it's empty or takes a step these weights don't allow
+        double pathCost(List<MapNode> path) {
+            if(path.isEmpty()) return Double.POSITIVE_INFINITY;
+            double cost = 0;
+            for(int i = 1; i < path.size(); i++) {
+                int e = edge(path.get(i-1).getId(), path.get(i).getId());
+                if(e == -1) return Double.POSITIVE_INFINITY;
+                cost += costs[e];
+            }
+            return cost;
+        }
+    }
+}
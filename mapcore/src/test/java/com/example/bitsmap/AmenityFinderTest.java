@@ -0,0 +1,84 @@
+package com.example.bitsmap;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AmenityFinderTest {
+
+    private static final double EPS = 1e-6;
+
+    private static final MapData mapData = ShippedMap.get();
+
+    @Test
+    public void nearestMatchesRoutingToEveryCandidate() {
+        List<MapNode> nodeList = mapData.getNodeList();
+        CampusGraph graph = mapData.getCampusGraph();
+        AmenityFinder amenityFinder = new AmenityFinder(mapData);
+        PathFinder pathFinder = new PathFinder(nodeList, graph);
+        List<MapNode> path = new ArrayList<>(), candidatePath = new ArrayList<>();
+
+        for(RoutingProfile profile : new RoutingProfile[] {RoutingProfile.walking(), RoutingProfile.wheelchair()}) {
+            RoutingProfile.Weights weights = profile.weigh(graph);
+            for(Infratype type : new Infratype[] {Infratype.Washroom, Infratype.DrinkingWater}) {
+                for(MapNode source : nodeList) {
+                    // the old way: a findPath to each one
+                    double best = Double.POSITIVE_INFINITY;
+                    for(Infra infra : mapData.getInfraList()) {
+                        if(infra.getInfratype() != type) continue;
+                        if(type == Infratype.DrinkingWater && !infra.getName().equals("DrinkingWater")) continue;
+                        best = Math.min(best, pathFinder.findPath(source, infra.getMapNode(), weights, candidatePath));
+                    }
+
+                    Infra nearest = amenityFinder.findNearest(pathFinder, source, type, weights, path);
+                    if(best == Double.POSITIVE_INFINITY) {
+                        assertNull(nearest);
+                        assertTrue(path.isEmpty());
+                        continue;
+                    }
+
+                    assertEquals(type, nearest.getInfratype());
+                    assertSame(source, path.get(0));
+                    assertSame(nearest.getMapNode(), path.get(path.size()-1));
+                    assertEquals(best, pathFinder.findPath(source, nearest.getMapNode(), weights, candidatePath), EPS);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void waterIsOnlyEverDrinkingWater() {
+        AmenityFinder amenityFinder = new AmenityFinder(mapData);
+        PathFinder pathFinder = new PathFinder(mapData.getNodeList(), mapData.getCampusGraph());
+        RoutingProfile.Weights weights = RoutingProfile.walking().weigh(mapData.getCampusGraph());
+        List<MapNode> path = new ArrayList<>();
+
+        int found = 0;
+        for(MapNode source : mapData.getNodeList()) {
+            Infra nearest = amenityFinder.findNearest(pathFinder, source, Infratype.DrinkingWater, weights, path);
+            if(nearest == null) continue;
+            assertEquals("DrinkingWater", nearest.getName());
+            found++;
+        }
+        assertEquals(mapData.getNodeList().size(), found);
+    }
+
+    @Test
+    public void amenityAtTheSourceNeedsNoRoute() {
+        AmenityFinder amenityFinder = new AmenityFinder(mapData);
+        PathFinder pathFinder = new PathFinder(mapData.getNodeList(), mapData.getCampusGraph());
+        RoutingProfile.Weights weights = RoutingProfile.walking().weigh(mapData.getCampusGraph());
+        List<MapNode> path = new ArrayList<>();
+
+        for(Infra infra : mapData.getInfraList()) {
+            if(infra.getInfratype() != Infratype.Washroom) continue;
+            Infra nearest = amenityFinder.findNearest(pathFinder, infra.getMapNode(), Infratype.Washroom, weights, path);
+            assertSame(infra.getMapNode(), nearest.getMapNode());
+            assertEquals(1, path.size());
+            assertEquals(1, pathFinder.getSettledCount());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.bitsmap;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class AnchorTreesTest {
+
+    private static final MapData mapData = ShippedMap.get();
+
+    @Test
+    public void treeRoutesMatchSearch() throws IOException {
+        CampusGraph graph = mapData.getCampusGraph();
+        List<MapNode> nodeList = mapData.getNodeList();
+        List<RoutingProfile.Weights> weightsList = Arrays.asList(RoutingProfile.walking().weigh(graph), RoutingProfile.wheelchair().weigh(graph));
+        Set<MapNode> anchors = new LinkedHashSet<>(mapData.getReferencePoints().values());
+
+        // through a file, like the app gets them
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AnchorTrees.build(mapData, anchors, weightsList).write(out);
+        AnchorTrees anchorTrees = AnchorTrees.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(2*anchors.size(), anchorTrees.getTreeCount());
+
+        PathFinder pathFinder = new PathFinder(nodeList, graph);
+        List<MapNode> expected = new ArrayList<>(), actual = new ArrayList<>();
+        for(RoutingProfile.Weights weights : weightsList) {
+            for(MapNode anchor : anchors) {
+                assertTrue(anchorTrees.covers(anchor, weights));
+                for(MapNode target : nodeList) {
+                    double e = pathFinder.findPath(anchor, target, weights, expected);
+                    double a = anchorTrees.findPath(anchor, target, weights, nodeList, actual);
+                    assertEquals(e, a, 1e-3);
+                    assertEquals(expected.isEmpty(), actual.isEmpty());
+                    if(actual.isEmpty()) continue;
+
+                    // ties may be broken differently, the route just has to be as cheap
+                    assertSame(anchor, actual.get(0));
+                    assertSame(target, actual.get(actual.size()-1));
+                    assertEquals(e, weights.pathCost(actual), 1e-6);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void onlyAnchorsAndMatchingWeightsAreCovered() {
+        CampusGraph graph = mapData.getCampusGraph();
+        RoutingProfile.Weights walking = RoutingProfile.walking().weigh(graph);
+        MapNode anchor = mapData.getReferencePoints().get("H_BLOCK_ENTRANCE");
+        AnchorTrees anchorTrees = AnchorTrees.build(mapData, Arrays.asList(anchor), Arrays.asList(walking));
+
+        assertTrue(anchorTrees.covers(anchor, RoutingProfile.walking().weigh(graph)));
+        assertFalse(anchorTrees.covers(mapData.getReferencePoints().get("POINT_Z"), walking));
+        assertFalse(anchorTrees.covers(anchor, RoutingProfile.wheelchair().weigh(graph)));
+
+        // same name, different costs: the saved trees are stale
+        RoutingProfile changed = RoutingProfile.walking();
+        changed.setStairsPenalty(10);
+        assertFalse(anchorTrees.covers(anchor, changed.weigh(graph)));
+    }
+
+    @Test
+    public void checksumSurvivesTheMapBlob() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MapBlob.write(mapData, out);
+        MapData loaded = MapBlob.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(RoutingProfile.walking().weigh(mapData.getCampusGraph()).getChecksum(), RoutingProfile.walking().weigh(loaded.getCampusGraph()).getChecksum());
+        assertEquals(RoutingProfile.wheelchair().weigh(mapData.getCampusGraph()).getChecksum(), RoutingProfile.wheelchair().weigh(loaded.getCampusGraph()).getChecksum());
+    }
+}
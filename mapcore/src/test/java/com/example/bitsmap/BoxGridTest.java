@@ -0,0 +1,54 @@
+package com.example.bitsmap;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BoxGridTest {
+
+    @Test
+    public void queryMatchesLinearScan() {
+        Random random = new Random(7);
+        int n = 5000;
+        int[] floors = new int[n];
+        float[] left = new float[n], bottom = new float[n], right = new float[n], top = new float[n];
+        for(int i = 0; i < n; i++) {
+            floors[i] = 1 + random.nextInt(3);
+            left[i] = random.nextFloat()*300;
+            bottom[i] = random.nextFloat()*300;
+            // mostly small boxes with the odd long corridor
+            float w = i % 50 == 0? random.nextFloat()*150 : random.nextFloat()*4;
+            float h = i % 50 == 1? random.nextFloat()*150 : random.nextFloat()*4;
+            right[i] = left[i] + w;
+            top[i] = bottom[i] + h;
+        }
+
+        BoxGrid grid = new BoxGrid(floors, left, bottom, right, top);
+        int[] out = new int[grid.getItemCount()];
+        for(int q = 0; q < 500; q++) {
+            int floor = random.nextInt(5);
+            float qLeft = random.nextFloat()*400 - 50, qBottom = random.nextFloat()*400 - 50;
+            float qRight = qLeft + random.nextFloat()*100, qTop = qBottom + random.nextFloat()*100;
+
+            int found = grid.query(floor, qLeft, qBottom, qRight, qTop, out);
+            int[] actual = Arrays.copyOf(out, found);
+            Arrays.sort(actual);
+
+            int[] expected = new int[n];
+            int count = 0;
+            for(int i = 0; i < n; i++) {
+                if(floors[i] == floor && right[i] >= qLeft && left[i] <= qRight && top[i] >= qBottom && bottom[i] <= qTop) expected[count++] = i;
+            }
+            assertArrayEquals(Arrays.copyOf(expected, count), actual);
+        }
+    }
+
+    @Test
+    public void emptyGridFindsNothing() {
+        BoxGrid grid = new BoxGrid(new int[0], new float[0], new float[0], new float[0], new float[0]);
+        assertEquals(0, grid.query(1, -10, -10, 10, 10, new int[0]));
+    }
+}
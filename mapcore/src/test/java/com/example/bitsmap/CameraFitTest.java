@@ -0,0 +1,60 @@
+package com.example.bitsmap;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CameraFitTest {
+
+    private static final int WIDTH = 1080, HEIGHT = 2160;
+
+    @Test
+    public void fittedPointsLandInsideThePadding() {
+        Random random = new Random(11);
+        for(int q = 0; q < 1000; q++) {
+            float cx = random.nextFloat()*200, cy = random.nextFloat()*200;
+            float[] xs = new float[4], ys = new float[4];
+            for(int i = 0; i < 4; i++) {
+                xs[i] = cx + (random.nextFloat()-0.5f)*300;
+                ys[i] = cy + (random.nextFloat()-0.5f)*300;
+            }
+            float padLeft = 80, padTop = 160, padRight = 80, padBottom = 0;
+
+            float scale = CameraFit.fitScale(cx, cy, xs, ys, 4, padLeft, padTop, padRight, padBottom, WIDTH, HEIGHT);
+            assertTrue(scale > 0 && scale < Float.POSITIVE_INFINITY);
+
+            // at the fitted scale every point is inside, and at all larger scales one touches an edge
+            boolean tight = false;
+            for(int i = 0; i < 4; i++) {
+                float sx = WIDTH/2f + scale*(xs[i]-cx);
+                float sy = HEIGHT/2f - scale*(ys[i]-cy);
+                assertTrue(sx >= padLeft - 0.01f && sx <= WIDTH - padRight + 0.01f);
+                assertTrue(sy >= padTop - 0.01f && sy <= HEIGHT - padBottom + 0.01f);
+                tight |= Math.abs(sx - padLeft) < 0.01f || Math.abs(sx - (WIDTH-padRight)) < 0.01f
+                        || Math.abs(sy - padTop) < 0.01f || Math.abs(sy - (HEIGHT-padBottom)) < 0.01f;
+            }
+            assertTrue(tight);
+        }
+    }
+
+    @Test
+    public void pointAtTheCentreDoesNotLimitZoom() {
+        float scale = CameraFit.fitScale(10, 20, new float[] {10}, new float[] {20}, 1, 400, 400, 400, 400, WIDTH, HEIGHT);
+        assertEquals(Float.POSITIVE_INFINITY, scale, 0);
+    }
+
+    @Test
+    public void paddingWiderThanTheScreenLeavesNoRoom() {
+        float scale = CameraFit.fitScale(0, 0, new float[] {5}, new float[] {0}, 1, 0, 0, WIDTH, 0, WIDTH, HEIGHT);
+        assertEquals(0, scale, 0);
+    }
+
+    @Test
+    public void scaleInterpolatesGeometrically() {
+        assertEquals(5, CameraFit.interpolateScale(5, 80, 0), 1e-4);
+        assertEquals(20, CameraFit.interpolateScale(5, 80, 0.5f), 1e-4);
+        assertEquals(80, CameraFit.interpolateScale(5, 80, 1), 1e-4);
+    }
+}
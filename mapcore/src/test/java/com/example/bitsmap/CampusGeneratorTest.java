@@ -0,0 +1,78 @@
+package com.example.bitsmap;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CampusGeneratorTest {
+
+    @Test
+    public void sameSeedSameCampus() {
+        assertEquals(new CampusGenerator(3, 4, 1).generate(), new CampusGenerator(3, 4, 1).generate());
+        assertNotEquals(new CampusGenerator(3, 4, 1).generate(), new CampusGenerator(3, 4, 2).generate());
+    }
+
+    @Test
+    public void generatedCampusParsesIntoOneConnectedMap() {
+        CampusGenerator generator = new CampusGenerator(5, 4, 7);
+        generator.setCorridorsPerFloor(3);
+        generator.setStairsPerBlock(3);
+        generator.setLiftsPerBlock(2);
+        MapData mapData = parse(generator.generate());
+
+        Set<Integer> floors = new HashSet<>();
+        for(int f = 1; f <= 4; f++) floors.add(f);
+        assertEquals(floors, mapData.getFloorSet());
+
+        // every floor changer meets its other end, apart from the ones that would lead off the top or bottom
+        for(Infra infra : mapData.getInfraList()) {
+            if(infra instanceof FloorChanger) assertNotEquals(infra.getName(), -1, mapData.getFloorChangerPairs()[infra.getId()]);
+        }
+
+        assertEquals(mapData.getNodeList().size(), reachable(mapData, null));
+        // there are lifts in every block, so nothing is out of reach on a wheelchair either
+        assertEquals(mapData.getNodeList().size(), reachable(mapData, new WheelchairFilter(mapData)));
+    }
+
+    @Test
+    public void scalesWellPastTheShippedMap() {
+        CampusGenerator generator = new CampusGenerator(100, 6, 3);
+        generator.setSpineSteps(20);
+        generator.setCorridorsPerFloor(5);
+        MapData mapData = parse(generator.generate());
+        assertTrue(mapData.getNodeList().size() > 100*205);
+        assertEquals(mapData.getNodeList().size(), reachable(mapData, null));
+    }
+
+    private static MapData parse(String text) {
+        return new MapParser().parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static int reachable(MapData mapData, TransitionFilter filter) {
+        List<MapNode> nodeList = mapData.getNodeList();
+        CampusGraph graph = mapData.getCampusGraph();
+        boolean[] seen = new boolean[nodeList.size()];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        seen[0] = true;
+        int count = 1;
+        while(!queue.isEmpty()) {
+            int u = queue.poll();
+            for(int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+                int v = graph.getNeighbour(e);
+                if(seen[v] || (filter != null && !filter.transitionValid(nodeList.get(u), nodeList.get(v)))) continue;
+                seen[v] = true;
+                count++;
+                queue.add(v);
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.bitsmap;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CampusGraphTest {
+
+    private static final MapParser parser = ShippedMap.parser();
+    private static final MapData mapData = ShippedMap.get();
+
+    @Test
+    public void edgesMatchParsedGraph() {
+        CampusGraph campusGraph = mapData.getCampusGraph();
+        Map<MapNode, List<MapNode>> graph = parser.getGraph();
+
+        assertEquals(mapData.getNodeList().size(), campusGraph.getNodeCount());
+        for(MapNode node : mapData.getNodeList()) {
+            int u = node.getId();
+            Set<Integer> expected = new HashSet<>();
+            for(MapNode n : graph.get(node)) expected.add(n.getId());
+
+            Set<Integer> actual = new HashSet<>();
+            for(int e = campusGraph.getEdgeStart(u); e < campusGraph.getEdgeEnd(u); e++) {
+                int v = campusGraph.getNeighbour(e);
+                assertTrue("duplicate edge " + u + " -> " + v, actual.add(v));
+                assertEquals(node.getPosition().dist(mapData.getNodeList().get(v).getPosition()), campusGraph.getLength(e), 0);
+            }
+            assertEquals(expected, actual);
+
+            assertEquals(node.getPosition().getX(), campusGraph.getX(u), 0);
+            assertEquals(node.getPosition().getY(), campusGraph.getY(u), 0);
+            assertEquals((int) node.getPosition().getZ(), campusGraph.getFloor(u));
+        }
+    }
+
+    @Test
+    public void floorChangeEdgesAreFlagged() {
+        CampusGraph campusGraph = mapData.getCampusGraph();
+        int stairs = 0, lifts = 0;
+
+        for(int u = 0; u < campusGraph.getNodeCount(); u++) {
+            for(int e = campusGraph.getEdgeStart(u); e < campusGraph.getEdgeEnd(u); e++) {
+                int v = campusGraph.getNeighbour(e);
+                boolean sameFloor = campusGraph.getFloor(u) == campusGraph.getFloor(v);
+
+                assertEquals(sameFloor, campusGraph.hasFlag(e, CampusGraph.SAME_FLOOR));
+                if(sameFloor) {
+                    assertTrue(campusGraph.hasFlag(e, CampusGraph.ACCESSIBLE));
+                    assertFalse(campusGraph.hasFlag(e, CampusGraph.STAIRS | CampusGraph.LIFT));
+                    continue;
+                }
+
+                assertTrue(campusGraph.hasFlag(e, CampusGraph.STAIRS | CampusGraph.LIFT));
+                if(campusGraph.hasFlag(e, CampusGraph.STAIRS)) stairs++;
+                // every lift has a ramp, none of the shipped stairs do
+                if(campusGraph.hasFlag(e, CampusGraph.LIFT)) {
+                    lifts++;
+                    assertTrue(campusGraph.hasFlag(e, CampusGraph.ACCESSIBLE));
+                }
+                else {
+                    assertFalse(campusGraph.hasFlag(e, CampusGraph.ACCESSIBLE));
+                }
+            }
+        }
+
+        assertTrue(stairs > 0);
+        assertTrue(lifts > 0);
+    }
+
+    @Test
+    public void accessibleFlagMatchesWheelchairFilter() {
+        CampusGraph campusGraph = mapData.getCampusGraph();
+        WheelchairFilter filter = new WheelchairFilter(mapData);
+        List<MapNode> nodeList = mapData.getNodeList();
+
+        for(int u = 0; u < campusGraph.getNodeCount(); u++) {
+            for(int e = campusGraph.getEdgeStart(u); e < campusGraph.getEdgeEnd(u); e++) {
+                MapNode from = nodeList.get(u), to = nodeList.get(campusGraph.getNeighbour(e));
+                assertEquals(filter.transitionValid(from, to), campusGraph.hasFlag(e, CampusGraph.ACCESSIBLE));
+            }
+        }
+    }
+
+    @Test
+    public void smallerThanAdjacencyMap() {
+        CampusGraph campusGraph = mapData.getCampusGraph();
+        Map<MapNode, List<MapNode>> graph = parser.getGraph();
+
+        // HashMap.Node + bucket slot + ArrayList + Object[] header per key, a reference per neighbour slot
+        long mapBytes = 0;
+        for(List<MapNode> neighbours : graph.values()) {
+            int capacity = Math.max(10, neighbours.size());
+            mapBytes += 32 + 4 + 24 + 16 + 4L*capacity;
+        }
+
+        assertTrue(campusGraph.getFootprintBytes() + " vs " + mapBytes, campusGraph.getFootprintBytes() < mapBytes);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.bitsmap;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ContractionHierarchyTest {
+
+    private static final double EPS = 1e-6;
+
+    private static final MapData mapData = ShippedMap.get();
+
+    @Test
+    public void allPairsMatchDijkstra() {
+        CampusGraph graph = mapData.getCampusGraph();
+        List<MapNode> nodeList = mapData.getNodeList();
+        PathFinder pathFinder = new PathFinder(nodeList, graph);
+        List<MapNode> expected = new ArrayList<>(), actual = new ArrayList<>();
+
+        RoutingProfile stairsAverse = RoutingProfile.walking();
+        stairsAverse.setStairsPenalty(30);
+        for(RoutingProfile profile : new RoutingProfile[] {RoutingProfile.walking(), RoutingProfile.wheelchair(), stairsAverse}) {
+            RoutingProfile.Weights weights = profile.weigh(graph);
+            ContractionHierarchy hierarchy = new ContractionHierarchy(nodeList, weights);
+
+            for(MapNode source : nodeList) {
+                for(MapNode target : nodeList) {
+                    double e = pathFinder.findPath(source, target, weights, expected);
+                    double a = hierarchy.findPath(source, target, actual);
+                    assertEquals(profile.getName() + " " + source.getId() + " -> " + target.getId(), e, a, EPS);
+                    if(e == Double.POSITIVE_INFINITY) {
+                        assertTrue(actual.isEmpty());
+                        continue;
+                    }
+                    assertEquals(a, weights.pathCost(actual), EPS);
+                    assertSame(source, actual.get(0));
+                    assertSame(target, actual.get(actual.size()-1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void generatedCampusMatchesDijkstra() {
+        CampusGenerator generator = new CampusGenerator(8, 4, 11);
+        String text = generator.generate();
+        MapData generated = new MapParser().parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+        CampusGraph graph = generated.getCampusGraph();
+        List<MapNode> nodeList = generated.getNodeList();
+        RoutingProfile.Weights weights = RoutingProfile.wheelchair().weigh(graph);
+
+        ContractionHierarchy hierarchy = new ContractionHierarchy(nodeList, weights);
+        PathFinder pathFinder = new PathFinder(nodeList, graph);
+        List<MapNode> expected = new ArrayList<>(), actual = new ArrayList<>();
+        Random random = new Random(5);
+        int chSettled = 0, dijkstraSettled = 0;
+
+        for(int i = 0; i < 500; i++) {
+            MapNode source = nodeList.get(random.nextInt(nodeList.size()));
+            MapNode target = nodeList.get(random.nextInt(nodeList.size()));
+            double e = pathFinder.findPath(source, target, weights, expected);
+            dijkstraSettled += pathFinder.getSettledCount();
+            double a = hierarchy.findPath(source, target, actual);
+            chSettled += hierarchy.getSettledCount();
+
+            assertEquals(e, a, EPS);
+            if(e < Double.POSITIVE_INFINITY) assertEquals(a, weights.pathCost(actual), EPS);
+        }
+
+        assertTrue(chSettled + " vs " + dijkstraSettled, chSettled < dijkstraSettled);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.bitsmap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DebouncedSearchTest {
+
+    private static final InfraRanker infraRanker = new InfraRanker(ShippedMap.get());
+
+    private ScheduledExecutorService background;
+    private ScheduledExecutorService ui;
+
+    @Before
+    public void startExecutors() {
+        background = Executors.newSingleThreadScheduledExecutor();
+        ui = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void stopExecutors() {
+        background.shutdownNow();
+        ui.shutdownNow();
+    }
+
+    // submit has to be called on the ui thread, like the search boxes do
+    private void submitOnUi(DebouncedSearch search, String query, DebouncedSearch.Listener listener) throws Exception {
+        ui.submit(() -> search.submit(query, listener)).get();
+    }
+
+    @Test
+    public void typingOnlySearchesTheLastQuery() throws Exception {
+        DebouncedSearch search = new DebouncedSearch(background, ui, 200);
+        search.setInfraRanker(infraRanker);
+
+        List<String> published = new ArrayList<>();
+        List<SearchResult> lastResults = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        DebouncedSearch.Listener listener = (query, results) -> {
+            published.add(query);
+            lastResults.addAll(results);
+            done.countDown();
+        };
+
+        for(String query : new String[]{"w", "wa", "was", "wash"}) submitOnUi(search, query, listener);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // nothing else is queued after the last query ran
+        ui.submit(() -> {}).get();
+
+        assertEquals(1, published.size());
+        assertEquals("wash", published.get(0));
+        assertEquals(1, search.getSearchCount());
+
+        List<SearchResult> expected = new ArrayList<>();
+        infraRanker.search("wash", expected);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), lastResults.size());
+    }
+
+    @Test
+    public void cancelledQueryIsNeverPublished() throws Exception {
+        DebouncedSearch search = new DebouncedSearch(background, ui, 50);
+        search.setInfraRanker(infraRanker);
+
+        List<String> published = new ArrayList<>();
+        submitOnUi(search, "room", (query, results) -> published.add(query));
+        ui.submit(search::cancel).get();
+
+        Thread.sleep(200);
+        background.submit(() -> {}).get();
+        ui.submit(() -> {}).get();
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    public void noResultsBeforeTheMapLoads() throws Exception {
+        DebouncedSearch search = new DebouncedSearch(background, ui, 0);
+
+        List<SearchResult> got = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        submitOnUi(search, "room", (query, results) -> {
+            got.addAll(results);
+            done.countDown();
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(got.isEmpty());
+    }
+}
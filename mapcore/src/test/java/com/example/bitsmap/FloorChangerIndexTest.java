@@ -0,0 +1,81 @@
+package com.example.bitsmap;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class FloorChangerIndexTest {
+
+    private static final MapParser parser = ShippedMap.parser();
+    private static final MapData mapData = ShippedMap.get();
+
+    // the scan MainActivity used to do over floorChangerMap for every floor change on a route
+    private static FloorChanger scan(MapNode n1, MapNode n2, boolean usingWheelChair) {
+        for(Map<Integer, Map<Double, FloorChanger>> indexMap1 : parser.getFloorChangerMap().values()) {
+            for(FloorChanger fc1 : allOf(indexMap1)) {
+                if((usingWheelChair && !fc1.isAccessible()) || fc1.getMapNode() != n1) continue;
+                for(Map<Integer, Map<Double, FloorChanger>> indexMap2 : parser.getFloorChangerMap().values()) {
+                    for(FloorChanger fc2 : allOf(indexMap2)) {
+                        if((usingWheelChair && !fc2.isAccessible()) || fc2.getMapNode() != n2) continue;
+                        if(((fc1.getInfratype() == Infratype.StairsDown && fc2.getInfratype() == Infratype.StairsUp) ||
+                            (fc1.getInfratype() == Infratype.StairsUp && fc2.getInfratype() == Infratype.StairsDown) ||
+                            (fc1.getInfratype() == Infratype.LiftUp && fc2.getInfratype() == Infratype.LiftDown) ||
+                            (fc1.getInfratype() == Infratype.LiftDown && fc2.getInfratype() == Infratype.LiftUp)) &&
+                                fc1.getIndex() == fc2.getIndex() &&
+                            fc1.getOtherEnd().equals(n2.getPosition())) return fc1;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<FloorChanger> allOf(Map<Integer, Map<Double, FloorChanger>> indexMap) {
+        List<FloorChanger> all = new ArrayList<>();
+        for(Map<Double, FloorChanger> floorMap : indexMap.values()) all.addAll(floorMap.values());
+        return all;
+    }
+
+    @Test
+    public void matchesScanOnEveryFloorChange() {
+        FloorChangerIndex index = new FloorChangerIndex(mapData);
+        CampusGraph campusGraph = mapData.getCampusGraph();
+        List<MapNode> nodeList = mapData.getNodeList();
+        int checked = 0;
+
+        for(int u = 0; u < campusGraph.getNodeCount(); u++) {
+            for(int e = campusGraph.getEdgeStart(u); e < campusGraph.getEdgeEnd(u); e++) {
+                if(campusGraph.hasFlag(e, CampusGraph.SAME_FLOOR)) continue;
+                MapNode from = nodeList.get(u), to = nodeList.get(campusGraph.getNeighbour(e));
+
+                FloorChanger walking = index.between(from, to, false);
+                assertNotNull(from + " -> " + to, walking);
+                assertSame(scan(from, to, false), walking);
+                assertSame(to, mapData.getInfraList().get(index.getPair(walking.getId())).getMapNode());
+
+                FloorChanger wheelchair = index.between(from, to, true);
+                assertSame(scan(from, to, true), wheelchair);
+                assertEquals(campusGraph.hasFlag(e, CampusGraph.ACCESSIBLE), wheelchair != null);
+                checked++;
+            }
+        }
+
+        assertTrue(checked > 0);
+    }
+
+    @Test
+    public void nothingBetweenNodesOnOneFloor() {
+        FloorChangerIndex index = new FloorChangerIndex(mapData);
+        CampusGraph campusGraph = mapData.getCampusGraph();
+        List<MapNode> nodeList = mapData.getNodeList();
+
+        for(int e = campusGraph.getEdgeStart(0); e < campusGraph.getEdgeEnd(0); e++) {
+            if(!campusGraph.hasFlag(e, CampusGraph.SAME_FLOOR)) continue;
+            assertNull(index.between(nodeList.get(0), nodeList.get(campusGraph.getNeighbour(e)), false));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.bitsmap;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class InfraRankerTest {
+
+    private static final MapData mapData = ShippedMap.get();
+    private static final InfraRanker ranker = new InfraRanker(mapData);
+
+    private static List<SearchResult> search(String query) {
+        List<SearchResult> results = new ArrayList<>();
+        ranker.search(query, results);
+        return results;
+    }
+
+    @Test
+    public void matcherCountsEditsToTheBestSubstring() {
+        assertEquals(0, new InfraRanker.Matcher("wash").distance("washroomallfloor1"));
+        assertEquals(1, new InfraRanker.Matcher("washrom").distance("washroomallfloor1"));
+        // a swap is two edits
+        assertEquals(2, new InfraRanker.Matcher("wsahroom").distance("washroomallfloor1"));
+        assertEquals(3, new InfraRanker.Matcher("xyz").distance("h137floor1"));
+    }
+
+    @Test
+    public void wordsSplitOnCaseDigitsAndSpaces() {
+        assertArrayEquals(new String[]{"washroom", "all"}, InfraRanker.words("WashroomAll"));
+        assertArrayEquals(new String[]{"h", "137"}, InfraRanker.words("H 137"));
+        assertArrayEquals(new String[]{"b", "0", "101"}, InfraRanker.words("B0 101"));
+    }
+
+    @Test
+    public void prefixWithoutTheSpaceFindsRooms() {
+        List<SearchResult> results = search("H13");
+        assertFalse(results.isEmpty());
+        for(SearchResult result : results) assertTrue(result.getHighlightedInfra().getName().startsWith("H 13"));
+    }
+
+    @Test
+    public void typoStillFindsWashrooms() {
+        List<SearchResult> results = search("washrom");
+        assertFalse(results.isEmpty());
+        for(SearchResult result : results) assertEquals(Infratype.Washroom, result.getHighlightedInfra().getInfratype());
+    }
+
+    @Test
+    public void candidatesHoldEveryMatchAndFewerThanAll() {
+        List<String> keys = new ArrayList<>();
+        for(Infra infra : mapData.getInfraList()) {
+            if(InfraRanker.isSearchable(infra)) keys.add(InfraRanker.compact(infra.getName()) + "floor" + (int) infra.getPosition().getZ());
+        }
+
+        for(String query : new String[]{"h13", "washrom", "wsahroom", "h137", "drinkingwatr", "i2", "lift"}) {
+            int[] candidates = ranker.candidates(query);
+            assertTrue(query, candidates.length < keys.size());
+            for(int i = 1; i < candidates.length; i++) assertTrue(candidates[i-1] < candidates[i]);
+
+            // what scoring every infra would find
+            InfraRanker.Matcher matcher = new InfraRanker.Matcher(query);
+            for(int id = 0; id < keys.size(); id++) {
+                boolean matches = keys.get(id).contains(query) || matcher.distance(keys.get(id)) <= InfraRanker.maxTypos(query.length());
+                if(matches) assertTrue(query + " " + keys.get(id), Arrays.binarySearch(candidates, id) >= 0);
+            }
+        }
+    }
+
+    // every piece of every key too short to allow a typo only has to contain the query
+    @Test
+    public void shortQueryCandidatesMatchScan() {
+        List<String> keys = new ArrayList<>();
+        for(Infra infra : mapData.getInfraList()) {
+            if(InfraRanker.isSearchable(infra)) keys.add(InfraRanker.compact(infra.getName()) + "floor" + (int) infra.getPosition().getZ());
+        }
+
+        Set<String> queries = new LinkedHashSet<>();
+        for(String key : keys) {
+            for(int start = 0; start < key.length(); start++) {
+                for(int end = start+1; end <= Math.min(key.length(), start+3); end++) queries.add(key.substring(start, end));
+            }
+        }
+        queries.add("zzz");
+
+        for(String query : queries) {
+            List<Integer> expected = new ArrayList<>();
+            for(int id = 0; id < keys.size(); id++) {
+                if(keys.get(id).contains(query)) expected.add(id);
+            }
+            List<Integer> actual = new ArrayList<>();
+            for(int id : ranker.candidates(query)) actual.add(id);
+            assertEquals(query, expected, actual);
+        }
+    }
+
+    @Test
+    public void fireSafetyIsNeverOffered() {
+        ranker.setMaxResults(1000);
+        try {
+            for(String query : new String[]{"fire", "fireextinguisher", "firehose"}) {
+                for(SearchResult result : search(query)) assertTrue(InfraRanker.isSearchable(result.getHighlightedInfra()));
+            }
+        }
+        finally {
+            ranker.setMaxResults(50);
+        }
+    }
+
+    @Test
+    public void shortQueriesAreNotFuzzy() {
+        assertTrue(search("qzx").isEmpty());
+        assertTrue(search("").isEmpty());
+    }
+
+    @Test
+    public void exactNameRanksFirst() {
+        Infra room = null;
+        for(Infra infra : mapData.getInfraList()) {
+            if(infra.getInfratype() == Infratype.Room) {
+                room = infra;
+                break;
+            }
+        }
+        assertSame(room, search(room.getName()).get(0).getHighlightedInfra());
+    }
+
+    @Test
+    public void resultsAreCappedAndOrdered() {
+        ranker.setMaxResults(5);
+        try {
+            List<SearchResult> capped = search("h");
+            assertEquals(5, capped.size());
+
+            ranker.setMaxResults(1000);
+            List<SearchResult> all = search("h");
+            assertTrue(all.size() > 5);
+            for(int i = 0; i < 5; i++) assertSame(all.get(i).getHighlightedInfra(), capped.get(i).getHighlightedInfra());
+        }
+        finally {
+            ranker.setMaxResults(50);
+        }
+    }
+
+    @Test
+    public void nearbyInfraRankHigher() {
+        RoutingProfile.Weights weights = RoutingProfile.walking().weigh(mapData.getCampusGraph());
+        List<SearchResult> results = new ArrayList<>();
+
+        // from each washroom, that washroom comes first among equally good matches
+        for(Infra washroom : mapData.getInfraList()) {
+            if(washroom.getInfratype() != Infratype.Washroom) continue;
+            ranker.search("washroom", washroom.getMapNode(), weights, results);
+            assertSame(washroom.getMapNode(), results.get(0).getMapNode());
+        }
+    }
+}
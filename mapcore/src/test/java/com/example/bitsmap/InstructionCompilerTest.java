@@ -0,0 +1,121 @@
+package com.example.bitsmap;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InstructionCompilerTest {
+
+    private static final MapData mapData = ShippedMap.get();
+    private static final InstructionCompiler compiler = new InstructionCompiler(mapData, new FloorChangerIndex(mapData));
+
+    private static MapNode node(double x, double y, double z) {
+        return new MapNode(0, new Vec3D(x, y, z));
+    }
+
+    // the look ahead setCurrentAction used to do at every step, returning the pin node
+    // and landmark it picked
+    private static Object[] lookAhead(List<MapNode> path, int i) {
+        MapNode n1 = path.get(i);
+        i++;
+        MapNode n2 = path.get(i);
+
+        Vec3D direction;
+        Vec3D newDirection = n2.getPosition().subtract(n1.getPosition());
+        Infra lastNonEmpty = compiler.landmark(n2);
+        MapNode nonEmptyMiddleNode = n2;
+        do {
+            direction = newDirection;
+            i++;
+            if(i >= path.size()) break;
+
+            n1 = n2;
+            n2 = path.get(i);
+            newDirection = n2.getPosition().subtract(n1.getPosition());
+
+            Infra info = compiler.landmark(n1);
+            if(info != null) {
+                lastNonEmpty = info;
+                nonEmptyMiddleNode = n1;
+            }
+        } while(direction.hasSameDirectionAs(newDirection));
+
+        MapNode middle = direction.hasSameDirectionAs(newDirection)? n2 : n1;
+        Infra infra = compiler.landmark(middle);
+        if(infra == null) {
+            if(lastNonEmpty == null) return new Object[]{n1, null};
+            return new Object[]{nonEmptyMiddleNode, lastNonEmpty};
+        }
+        return new Object[]{middle, infra};
+    }
+
+    @Test
+    public void matchesTheOldLookAheadOnRealRoutes() {
+        PathFinder pathFinder = new PathFinder(mapData.getNodeList(), mapData.getCampusGraph());
+        List<Infra> infraList = mapData.getInfraList();
+        List<MapNode> path = new ArrayList<>();
+        int checked = 0;
+
+        for(int a = 0; a < infraList.size(); a += 7) {
+            for(int b = 3; b < infraList.size(); b += 11) {
+                pathFinder.findPath(infraList.get(a).getMapNode(), infraList.get(b).getMapNode(), (EdgeMask) null, path);
+                if(path.size() < 2) continue;
+
+                Maneuver[] maneuvers = compiler.compile(path, false);
+                assertEquals(path.size(), maneuvers.length);
+                assertEquals(Maneuver.Kind.Arrive, maneuvers[path.size()-1].getKind());
+
+                for(int i = 0; i < path.size()-1; i++) {
+                    Maneuver m = maneuvers[i];
+                    assertEquals(i, m.getStart());
+                    if(path.get(i).getPosition().getZ() != path.get(i+1).getPosition().getZ()) {
+                        assertEquals(Maneuver.Kind.ChangeFloor, m.getKind());
+                        assertNotNull(m.getFloorChanger());
+                        continue;
+                    }
+
+                    Object[] expected = lookAhead(path, i);
+                    assertSame(expected[0], m.getLandmarkNode());
+                    assertSame(expected[1], m.getLandmark());
+                    assertEquals(expected[1] == null? Maneuver.Kind.KeepGoing : Maneuver.Kind.GoTo, m.getKind());
+                    checked++;
+                }
+            }
+        }
+        assertTrue(checked > 1000);
+    }
+
+    @Test
+    public void turnsAndDistances() {
+        // east 10, then north 10 in two steps
+        List<MapNode> path = Arrays.asList(node(0, 0, 1), node(10, 0, 1), node(10, 5, 1), node(10, 10, 1));
+        Maneuver[] maneuvers = compiler.compile(path, false);
+
+        assertEquals(0, maneuvers[0].getTurnAngle(), 1e-9);
+        assertEquals(1, maneuvers[0].getEnd());
+        assertEquals(10, maneuvers[0].getDistance(), 1e-9);
+
+        assertEquals(90, maneuvers[1].getTurnAngle(), 1e-9);
+        assertEquals(3, maneuvers[1].getEnd());
+        assertEquals(10, maneuvers[1].getDistance(), 1e-9);
+        assertEquals(Maneuver.Kind.KeepGoing, maneuvers[1].getKind());
+        // short of the end, like the old prompt
+        assertSame(path.get(2), maneuvers[1].getLandmarkNode());
+
+        assertEquals(0, maneuvers[2].getTurnAngle(), 1e-9);
+        assertEquals(Maneuver.Kind.Arrive, maneuvers[3].getKind());
+    }
+
+    @Test
+    public void emptyAndSingleNodeRoutes() {
+        assertEquals(0, compiler.compile(new ArrayList<>(), false).length);
+
+        Maneuver[] maneuvers = compiler.compile(Arrays.asList(node(0, 0, 1)), false);
+        assertEquals(1, maneuvers.length);
+        assertEquals(Maneuver.Kind.Arrive, maneuvers[0].getKind());
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.bitsmap;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MapBlobTest {
+
+    private static MapData parsed;
+    private static MapData loaded;
+
+    @BeforeClass
+    public static void roundTrip() throws IOException {
+        parsed = ShippedMap.get();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MapBlob.write(parsed, out);
+        loaded = MapBlob.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test
+    public void nodesAndEdgesSurvive() {
+        assertEquals(parsed.getNodeList().size(), loaded.getNodeList().size());
+        for(int u = 0; u < parsed.getNodeList().size(); u++) {
+            assertEquals(0, parsed.getNodeList().get(u).getPosition().compareTo(loaded.getNodeList().get(u).getPosition()));
+        }
+        assertEquals(parsed.getFloorSet(), loaded.getFloorSet());
+
+        CampusGraph a = parsed.getCampusGraph();
+        CampusGraph b = loaded.getCampusGraph();
+        assertEquals(a.getEdgeCount(), b.getEdgeCount());
+        assertEquals(a.getMinFloor(), b.getMinFloor());
+        assertEquals(a.getMaxFloor(), b.getMaxFloor());
+        for(int u = 0; u < a.getNodeCount(); u++) {
+            assertEquals(a.getEdgeStart(u), b.getEdgeStart(u));
+            assertEquals(a.getEdgeEnd(u), b.getEdgeEnd(u));
+        }
+        for(int e = 0; e < a.getEdgeCount(); e++) {
+            assertEquals(a.getNeighbour(e), b.getNeighbour(e));
+            assertEquals(a.getLength(e), b.getLength(e), 0);
+            assertEquals(a.getFlags(e), b.getFlags(e));
+        }
+    }
+
+    @Test
+    public void infraSurvives() {
+        List<Infra> expected = parsed.getInfraList();
+        List<Infra> actual = loaded.getInfraList();
+        assertEquals(expected.size(), actual.size());
+
+        for(int i = 0; i < expected.size(); i++) {
+            Infra e = expected.get(i), a = actual.get(i);
+            assertEquals(e.getName(), a.getName());
+            assertEquals(e.getId(), a.getId());
+            assertEquals(e.getInfratype(), a.getInfratype());
+            assertEquals(e.getOrientation(), a.getOrientation());
+            assertEquals(e.getMapNode().getId(), a.getMapNode().getId());
+            assertEquals(0, e.getPosition().compareTo(a.getPosition()));
+            assertEquals(e instanceof FloorChanger, a instanceof FloorChanger);
+
+            if(e instanceof FloorChanger) {
+                FloorChanger efc = (FloorChanger) e, afc = (FloorChanger) a;
+                assertEquals(0, efc.getOtherEnd().compareTo(afc.getOtherEnd()));
+                assertEquals(efc.isAccessible(), afc.isAccessible());
+                assertEquals(efc.getIndex(), afc.getIndex());
+                assertEquals(parsed.getFloorChangerPairs()[i], loaded.getFloorChangerPairs()[i]);
+            }
+        }
+
+        for(MapNode node : parsed.getNodeList()) {
+            assertEquals(parsed.getNodeToInfra().get(node), loaded.getNodeToInfra().get(loaded.getNodeList().get(node.getId())));
+        }
+
+        assertEquals(parsed.getReferencePoints().size(), loaded.getReferencePoints().size());
+        for(Map.Entry<String, MapNode> entry : parsed.getReferencePoints().entrySet()) {
+            assertEquals(entry.getValue().getId(), loaded.getReferencePoints().get(entry.getKey()).getId());
+        }
+    }
+
+    @Test
+    public void routesAreUnchanged() {
+        PathFinder expected = new PathFinder(parsed.getNodeList(), parsed.getCampusGraph());
+        PathFinder actual = new PathFinder(loaded.getNodeList(), loaded.getCampusGraph());
+        List<MapNode> path = new ArrayList<>();
+
+        for(MapNode source : parsed.getNodeList()) {
+            MapNode target = parsed.getNodeList().get(parsed.getNodeList().size()-1-source.getId());
+            double e = expected.findPath(source, target, (EdgeMask) null, path);
+            double a = actual.findPath(loaded.getNodeList().get(source.getId()), loaded.getNodeList().get(target.getId()), (EdgeMask) null, path);
+            assertEquals(e, a, 0);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        MapBlob.read(new ByteArrayInputStream("H_BLOCK_ENTRANCE:\nU 10\n".getBytes()));
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.bitsmap;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class MapLoaderTest {
+
+    private static byte[] blob;
+
+    @BeforeClass
+    public static void compileMap() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MapBlob.write(ShippedMap.get(), out);
+        blob = out.toByteArray();
+    }
+
+    @Test
+    public void graphArrivesBeforeMapData() {
+        List<String> events = new ArrayList<>();
+        List<Runnable> uiQueue = new ArrayList<>();
+        RecordingListener listener = new RecordingListener(events);
+
+        // run the background work inline but hold the ui posts, like a busy main thread would
+        new MapLoader(Runnable::run, uiQueue::add).load(() -> new ByteArrayInputStream(blob), listener);
+        assertTrue(events.isEmpty());
+        assertEquals(2, uiQueue.size());
+
+        for(Runnable r : uiQueue) r.run();
+        assertEquals("graph", events.get(0));
+        assertEquals("map", events.get(1));
+        assertSame(listener.graph, listener.mapData.getCampusGraph());
+        assertEquals(listener.graph.getNodeCount(), listener.mapData.getNodeList().size());
+    }
+
+    @Test
+    public void failureIsReportedOnUiExecutor() {
+        List<String> events = new ArrayList<>();
+        Executor direct = Runnable::run;
+
+        new MapLoader(direct, direct).load(() -> new ByteArrayInputStream(new byte[] {1, 2, 3}), new RecordingListener(events));
+        assertEquals(1, events.size());
+        assertEquals("failed", events.get(0));
+    }
+
+    @Test
+    public void truncatedBlobIsReportedToo() {
+        List<String> events = new ArrayList<>();
+        Executor direct = Runnable::run;
+
+        // a good header, then the data runs out part way through
+        byte[] truncated = Arrays.copyOf(blob, blob.length / 2);
+        new MapLoader(direct, direct).load(() -> new ByteArrayInputStream(truncated), new RecordingListener(events));
+        assertEquals(1, events.size());
+        assertEquals("failed", events.get(0));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void loadedMapIsReadOnly() throws IOException {
+        MapData mapData = MapBlob.read(new ByteArrayInputStream(blob));
+        mapData.getInfraList().clear();
+    }
+
+    private static class RecordingListener implements MapLoader.Listener {
+        private final List<String> events;
+        private CampusGraph graph;
+        private MapData mapData;
+
+        RecordingListener(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void onGraphReady(CampusGraph graph) {
+            this.graph = graph;
+            events.add("graph");
+        }
+
+        @Override
+        public void onMapReady(MapData mapData) {
+            this.mapData = mapData;
+            events.add("map");
+        }
+
+        @Override
+        public void onLoadFailed(Exception e) {
+            events.add("failed");
+        }
+    }
+}
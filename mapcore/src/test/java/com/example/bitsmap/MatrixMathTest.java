@@ -0,0 +1,40 @@
+package com.example.bitsmap;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MatrixMathTest {
+
+    @Test
+    public void inverseMapsScreenBackToWorld() {
+        Random random = new Random(3);
+        float[] m = new float[9], inverse = new float[9];
+        for(int q = 0; q < 1000; q++) {
+            // scale, flip, rotate and translate like MapView's worldToScreen
+            float scale = 5 + random.nextFloat()*100;
+            double angle = random.nextDouble()*2*Math.PI;
+            float cos = (float) Math.cos(angle)*scale, sin = (float) Math.sin(angle)*scale;
+            m[0] = cos;  m[1] = sin;  m[2] = random.nextFloat()*2000;
+            m[3] = sin;  m[4] = -cos; m[5] = random.nextFloat()*2000;
+            m[6] = 0;    m[7] = 0;    m[8] = 1;
+
+            assertTrue(MatrixMath.invert(m, inverse));
+            float[] p = {random.nextFloat()*300 - 150, random.nextFloat()*300 - 150, 1};
+            float x = p[0], y = p[1];
+            MatrixMath.mapPoint(m, p);
+            p[2] = 1;
+            MatrixMath.mapPoint(inverse, p);
+            assertEquals(x, p[0], 1e-2);
+            assertEquals(y, p[1], 1e-2);
+        }
+    }
+
+    @Test
+    public void singularMatrixHasNoInverse() {
+        float[] out = new float[9];
+        assertFalse(MatrixMath.invert(new float[] {1, 2, 0, 2, 4, 0, 0, 0, 1}, out));
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.bitsmap;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+// checks NodeGrid against a linear scan, on the shipped map and on a large random one.
+public class NodeGridTest {
+
+    private static final CampusGraph campusGraph = ShippedMap.get().getCampusGraph();
+
+    @Test
+    public void nearestMatchesLinearScanOnShippedMap() {
+        checkNearest(campusGraph, new Random(1), 5000);
+    }
+
+    @Test
+    public void nearestMatchesLinearScanOnLargeMap() {
+        checkNearest(randomGraph(new Random(2), 20000, 3), new Random(3), 5000);
+    }
+
+    @Test
+    public void withinMatchesLinearScan() {
+        CampusGraph graph = randomGraph(new Random(4), 20000, 3);
+        NodeGrid grid = new NodeGrid(graph);
+        Random random = new Random(5);
+        int[] out = new int[graph.getNodeCount()];
+
+        for(int q = 0; q < 1000; q++) {
+            double x = random.nextDouble()*500 - 50, y = random.nextDouble()*500 - 50;
+            int floor = graph.getMinFloor() + random.nextInt(4) - 1;
+            double radius = random.nextDouble()*20;
+
+            int found = grid.within(x, y, floor, radius, out);
+            int[] actual = Arrays.copyOf(out, found);
+            Arrays.sort(actual);
+
+            int[] expected = new int[graph.getNodeCount()];
+            int count = 0;
+            for(int u = 0; u < graph.getNodeCount(); u++) {
+                if(graph.getFloor(u) == floor && dist(graph, u, x, y) <= radius) expected[count++] = u;
+            }
+            assertArrayEquals(Arrays.copyOf(expected, count), actual);
+        }
+    }
+
+    @Test
+    public void withinCountsPastTheOutputArray() {
+        NodeGrid grid = new NodeGrid(campusGraph);
+        int all = grid.within(0, 0, campusGraph.getMinFloor(), 1e6, new int[campusGraph.getNodeCount()]);
+        assertEquals(all, grid.within(0, 0, campusGraph.getMinFloor(), 1e6, new int[1]));
+    }
+
+    private static void checkNearest(CampusGraph graph, Random random, int queries) {
+        NodeGrid grid = new NodeGrid(graph);
+        double minX = Double.POSITIVE_INFINITY, maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for(int u = 0; u < graph.getNodeCount(); u++) {
+            minX = Math.min(minX, graph.getX(u));
+            maxX = Math.max(maxX, graph.getX(u));
+            minY = Math.min(minY, graph.getY(u));
+            maxY = Math.max(maxY, graph.getY(u));
+        }
+        double w = maxX - minX, h = maxY - minY;
+
+        for(int q = 0; q < queries; q++) {
+            // some queries land well outside the map
+            double x = minX - w/4 + random.nextDouble()*w*1.5;
+            double y = minY - h/4 + random.nextDouble()*h*1.5;
+            int floor = graph.getMinFloor() + random.nextInt(graph.getMaxFloor() - graph.getMinFloor() + 1);
+            double maxDist = q % 2 == 0? Double.POSITIVE_INFINITY : random.nextDouble()*5;
+
+            double expected = maxDist;
+            for(int u = 0; u < graph.getNodeCount(); u++) {
+                if(graph.getFloor(u) == floor) expected = Math.min(expected, dist(graph, u, x, y));
+            }
+
+            int u = grid.nearest(x, y, floor, maxDist);
+            if(expected == maxDist) {
+                assertEquals(-1, u);
+            }
+            else {
+                assertEquals(floor, graph.getFloor(u));
+                assertEquals(expected, dist(graph, u, x, y), 1e-9);
+            }
+        }
+    }
+
+    private static double dist(CampusGraph graph, int u, double x, double y) {
+        double dx = graph.getX(u)-x, dy = graph.getY(u)-y;
+        return Math.sqrt(dx*dx + dy*dy);
+    }
+
+    // nodes only, scattered over a few floors with dense clusters like the real blocks
+    private static CampusGraph randomGraph(Random random, int n, int floorCount) {
+        double[] x = new double[n], y = new double[n];
+        int[] floors = new int[n];
+        for(int u = 0; u < n; u++) {
+            if(u % 2 == 0) {
+                x[u] = random.nextDouble()*400;
+                y[u] = random.nextDouble()*400;
+            }
+            else {
+                x[u] = 100 + random.nextGaussian()*3;
+                y[u] = 250 + random.nextGaussian()*3;
+            }
+            floors[u] = 1 + random.nextInt(floorCount);
+        }
+        return new CampusGraph(new int[n+1], new int[0], new double[0], new byte[0], x, y, floors);
+    }
+}
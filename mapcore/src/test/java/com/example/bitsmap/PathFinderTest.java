@@ -0,0 +1,233 @@
+package com.example.bitsmap;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+// checks PathFinder against a Floyd-Warshall reference on the shipped map.
+public class PathFinderTest {
+
+    private static final double EPS = 1e-6;
+
+    private static final MapParser parser = ShippedMap.parser();
+    private static final MapData mapData = ShippedMap.get();
+
+    @Test
+    public void walkingRoutesMatchBruteForce() {
+        checkAgainstBruteForce(null);
+    }
+
+    @Test
+    public void filteredRoutesMatchBruteForce() {
+        checkAgainstBruteForce(PathFinderTest::sameFloor);
+    }
+
+    @Test
+    public void unreachableTargetLeavesPathEmpty() {
+        List<MapNode> nodeList = mapData.getNodeList();
+        PathFinder pathFinder = new PathFinder(nodeList, mapData.getCampusGraph());
+        MapNode groundFloor = mapData.getReferencePoints().get("H_BLOCK_START");
+        MapNode firstFloor = mapData.getReferencePoints().get("H_BLOCK_2_START");
+
+        List<MapNode> path = new ArrayList<>();
+        TransitionFilter sameFloor = PathFinderTest::sameFloor;
+        double d = pathFinder.findPath(groundFloor, firstFloor, sameFloor.toMask(mapData.getCampusGraph(), nodeList), path);
+
+        assertEquals(Double.POSITIVE_INFINITY, d, 0);
+        assertTrue(path.isEmpty());
+
+        // the same finder must still answer the next query correctly
+        d = pathFinder.findPath(groundFloor, firstFloor, (EdgeMask) null, path);
+        assertTrue(d < Double.POSITIVE_INFINITY);
+        assertSame(groundFloor, path.get(0));
+        assertSame(firstFloor, path.get(path.size()-1));
+    }
+
+    @Test
+    public void aStarRoutesMatchBruteForce() {
+        checkAgainstBruteForce(null, true);
+        checkAgainstBruteForce(PathFinderTest::sameFloor, true);
+    }
+
+    @Test
+    public void aStarSettlesFewerNodesAcrossBlocks() {
+        Map<String, MapNode> referencePoints = mapData.getReferencePoints();
+        PathFinder pathFinder = new PathFinder(mapData.getNodeList(), mapData.getCampusGraph());
+        List<MapNode> path = new ArrayList<>();
+
+        String[][] routes = {
+                {"H_BLOCK_ENTRANCE", "REST_OF_I_BLOCK2"},
+                {"H_BLOCK_ENTRANCE", "I_BLOCK_2"},
+                {"POINT_A", "POINT_Z"},
+        };
+        for(String[] route : routes) {
+            MapNode source = referencePoints.get(route[0]);
+            MapNode target = referencePoints.get(route[1]);
+
+            pathFinder.setUseAStar(false);
+            double dijkstra = pathFinder.findPath(source, target, (EdgeMask) null, path);
+            int dijkstraSettled = pathFinder.getSettledCount();
+
+            pathFinder.setUseAStar(true);
+            double aStar = pathFinder.findPath(source, target, (EdgeMask) null, path);
+            int aStarSettled = pathFinder.getSettledCount();
+
+            assertEquals(dijkstra, aStar, EPS);
+            assertTrue(route[0] + " -> " + route[1] + ": " + aStarSettled + " vs " + dijkstraSettled,
+                    aStarSettled < dijkstraSettled);
+        }
+    }
+
+    @Test
+    public void wheelchairMaskMatchesWheelchairFilter() {
+        CampusGraph campusGraph = mapData.getCampusGraph();
+        EdgeMask mask = RoutingProfile.wheelchair().weigh(campusGraph).getMask();
+        EdgeMask filtered = new WheelchairFilter(mapData).toMask(campusGraph, mapData.getNodeList());
+        for(int e = 0; e < campusGraph.getEdgeCount(); e++) assertEquals(filtered.allows(e), mask.allows(e));
+
+        checkAgainstBruteForce(new WheelchairFilter(mapData), true);
+    }
+
+    @Test
+    public void walkingMaskAllowsEveryEdge() {
+        CampusGraph campusGraph = mapData.getCampusGraph();
+        EdgeMask mask = RoutingProfile.walking().weigh(campusGraph).getMask();
+        for(int e = 0; e < campusGraph.getEdgeCount(); e++) assertTrue(mask.allows(e));
+    }
+
+    @Test
+    public void bidirectionalRoutesMatchBruteForce() {
+        checkAgainstBruteForce(null, false, true);
+        checkAgainstBruteForce(new WheelchairFilter(mapData), false, true);
+    }
+
+    @Test
+    public void bidirectionalMatchesOneWayWithProfiles() {
+        List<MapNode> nodeList = mapData.getNodeList();
+        CampusGraph campusGraph = mapData.getCampusGraph();
+        RoutingProfile trolley = RoutingProfile.trolley();
+        trolley.setStairsPenalty(25);
+        PathFinder oneWay = new PathFinder(nodeList, campusGraph);
+        PathFinder bothWays = new PathFinder(nodeList, campusGraph);
+        bothWays.setBidirectional(true);
+        List<MapNode> path = new ArrayList<>();
+
+        for(RoutingProfile profile : new RoutingProfile[] {RoutingProfile.walking(), RoutingProfile.wheelchair(), trolley}) {
+            RoutingProfile.Weights weights = profile.weigh(campusGraph);
+            for(MapNode source : nodeList) {
+                for(MapNode target : nodeList) {
+                    double expected = oneWay.findPath(source, target, weights, path);
+                    assertEquals(expected, bothWays.findPath(source, target, weights, path), EPS);
+                    if(expected == Double.POSITIVE_INFINITY) continue;
+                    assertSame(source, path.get(0));
+                    assertSame(target, path.get(path.size()-1));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void bidirectionalSettlesFewerNodesOnLongChains() {
+        String text = new CampusGenerator(8, 4, 11).generate();
+        MapData generated = new MapParser().parse(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+        List<MapNode> nodeList = generated.getNodeList();
+        PathFinder oneWay = new PathFinder(nodeList, generated.getCampusGraph());
+        PathFinder bothWays = new PathFinder(nodeList, generated.getCampusGraph());
+        bothWays.setBidirectional(true);
+        List<MapNode> path = new ArrayList<>();
+
+        Random random = new Random(5);
+        int oneWaySettled = 0, bothWaysSettled = 0;
+        for(int i = 0; i < 200; i++) {
+            MapNode source = nodeList.get(random.nextInt(nodeList.size()));
+            MapNode target = nodeList.get(random.nextInt(nodeList.size()));
+            assertEquals(oneWay.findPath(source, target, (EdgeMask) null, path), bothWays.findPath(source, target, (EdgeMask) null, path), EPS);
+            oneWaySettled += oneWay.getSettledCount();
+            bothWaysSettled += bothWays.getSettledCount();
+        }
+        assertTrue(bothWaysSettled + " vs " + oneWaySettled, bothWaysSettled < oneWaySettled);
+    }
+
+    private static boolean sameFloor(MapNode from, MapNode to) {
+        return from.getPosition().getZ() == to.getPosition().getZ();
+    }
+
+    private void checkAgainstBruteForce(TransitionFilter filter) {
+        checkAgainstBruteForce(filter, false);
+    }
+
+    private void checkAgainstBruteForce(TransitionFilter filter, boolean useAStar) {
+        checkAgainstBruteForce(filter, useAStar, false);
+    }
+
+    // the filter is baked into a mask for PathFinder, and asked per step by the reference
+    private void checkAgainstBruteForce(TransitionFilter filter, boolean useAStar, boolean bidirectional) {
+        List<MapNode> nodeList = mapData.getNodeList();
+        Map<MapNode, List<MapNode>> graph = parser.getGraph();
+        double[][] expected = floydWarshall(nodeList, graph, filter);
+        EdgeMask mask = filter == null? null : filter.toMask(mapData.getCampusGraph(), nodeList);
+
+        PathFinder pathFinder = new PathFinder(nodeList, mapData.getCampusGraph());
+        pathFinder.setUseAStar(useAStar);
+        pathFinder.setBidirectional(bidirectional);
+        List<MapNode> path = new ArrayList<>();
+        for(MapNode source : nodeList) {
+            for(MapNode target : nodeList) {
+                double d = pathFinder.findPath(source, target, mask, path);
+                double e = expected[source.getId()][target.getId()];
+
+                if(e == Double.POSITIVE_INFINITY) {
+                    assertEquals(Double.POSITIVE_INFINITY, d, 0);
+                    assertTrue(path.isEmpty());
+                    continue;
+                }
+
+                assertEquals("route " + source.getId() + " -> " + target.getId(), e, d, EPS);
+                assertSame(source, path.get(0));
+                assertSame(target, path.get(path.size()-1));
+
+                double length = 0;
+                for(int i = 1; i < path.size(); i++) {
+                    MapNode a = path.get(i-1), b = path.get(i);
+                    assertTrue(graph.get(a).contains(b));
+                    assertTrue(filter == null || filter.transitionValid(a, b));
+                    length += a.getPosition().dist(b.getPosition());
+                }
+                assertEquals(d, length, EPS);
+            }
+        }
+    }
+
+    private static double[][] floydWarshall(List<MapNode> nodeList, Map<MapNode, List<MapNode>> graph, TransitionFilter filter) {
+        int n = nodeList.size();
+        double[][] d = new double[n][n];
+        for(int i = 0; i < n; i++) {
+            for(int j = 0; j < n; j++) d[i][j] = i == j? 0 : Double.POSITIVE_INFINITY;
+        }
+
+        for(MapNode a : nodeList) {
+            for(MapNode b : graph.get(a)) {
+                if(filter != null && !filter.transitionValid(a, b)) continue;
+                d[a.getId()][b.getId()] = Math.min(d[a.getId()][b.getId()], a.getPosition().dist(b.getPosition()));
+            }
+        }
+
+        for(int k = 0; k < n; k++) {
+            for(int i = 0; i < n; i++) {
+                if(d[i][k] == Double.POSITIVE_INFINITY) continue;
+                for(int j = 0; j < n; j++) {
+                    if(d[i][k] + d[k][j] < d[i][j]) d[i][j] = d[i][k] + d[k][j];
+                }
+            }
+        }
+
+        return d;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.bitsmap;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RouteCacheTest {
+
+    private static final MapData mapData = ShippedMap.get();
+
+    @Test
+    public void hitsGiveTheSameRoute() {
+        PathFinder pathFinder = new PathFinder(mapData.getNodeList(), mapData.getCampusGraph());
+        RoutingProfile.Weights walking = RoutingProfile.walking().weigh(mapData.getCampusGraph());
+        RoutingProfile.Weights wheelchair = RoutingProfile.wheelchair().weigh(mapData.getCampusGraph());
+        RouteCache cache = new RouteCache(8);
+        List<Infra> infraList = mapData.getInfraList();
+        Infra start = infraList.get(0), destination = infraList.get(infraList.size()-1);
+        List<MapNode> expected = new ArrayList<>(), actual = new ArrayList<>();
+
+        for(RoutingProfile.Weights weights : new RoutingProfile.Weights[] {walking, wheelchair}) {
+            double cost = pathFinder.findPath(start.getMapNode(), destination.getMapNode(), weights, expected);
+            assertEquals(cost, cache.findPath(pathFinder, start, destination, weights, actual), 0);
+            assertEquals(expected, actual);
+            actual.clear();
+            assertEquals(cost, cache.findPath(pathFinder, start, destination, weights, actual), 0);
+            assertEquals(expected, actual);
+        }
+
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        PathFinder pathFinder = new PathFinder(mapData.getNodeList(), mapData.getCampusGraph());
+        RoutingProfile.Weights walking = RoutingProfile.walking().weigh(mapData.getCampusGraph());
+        RouteCache cache = new RouteCache(2);
+        List<Infra> infraList = mapData.getInfraList();
+        Infra a = infraList.get(0), b = infraList.get(1), c = infraList.get(2), d = infraList.get(3);
+        List<MapNode> path = new ArrayList<>();
+
+        cache.findPath(pathFinder, a, b, walking, path);
+        cache.findPath(pathFinder, a, c, walking, path);
+        // touching a -> b leaves a -> c as the eldest
+        cache.findPath(pathFinder, a, b, walking, path);
+        cache.findPath(pathFinder, a, d, walking, path);
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getSize());
+
+        cache.findPath(pathFinder, a, b, walking, path);
+        assertEquals(2, cache.getHits());
+        cache.findPath(pathFinder, a, c, walking, path);
+        assertEquals(4, cache.getMisses());
+        assertEquals(2, cache.getEvictions());
+    }
+
+    @Test
+    public void rememberedRouteIsAHit() {
+        PathFinder pathFinder = new PathFinder(mapData.getNodeList(), mapData.getCampusGraph());
+        RoutingProfile.Weights wheelchair = RoutingProfile.wheelchair().weigh(mapData.getCampusGraph());
+        RouteCache cache = new RouteCache(8);
+        Infra start = mapData.getInfraList().get(0), destination = mapData.getInfraList().get(7);
+        List<MapNode> expected = new ArrayList<>(), actual = new ArrayList<>();
+
+        double cost = pathFinder.findPath(start.getMapNode(), destination.getMapNode(), wheelchair, expected);
+        cache.remember(start, destination, wheelchair, expected);
+        assertEquals(cost, cache.findPath(pathFinder, start, destination, wheelchair, actual), 1e-9);
+        assertEquals(expected, actual);
+        assertEquals(1, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void newMapClearsTheCache() {
+        MapData reloaded = ShippedMap.parse();
+        RouteCache cache = new RouteCache(8);
+        List<MapNode> path = new ArrayList<>();
+
+        PathFinder pathFinder = new PathFinder(mapData.getNodeList(), mapData.getCampusGraph());
+        cache.findPath(pathFinder, mapData.getInfraList().get(0), mapData.getInfraList().get(5), RoutingProfile.walking().weigh(mapData.getCampusGraph()), path);
+        assertEquals(1, cache.getSize());
+
+        pathFinder = new PathFinder(reloaded.getNodeList(), reloaded.getCampusGraph());
+        cache.findPath(pathFinder, reloaded.getInfraList().get(0), reloaded.getInfraList().get(5), RoutingProfile.walking().weigh(reloaded.getCampusGraph()), path);
+        assertEquals(1, cache.getSize());
+        assertEquals(2, cache.getMisses());
+        // the route is made of the new map's nodes
+        for(MapNode node : path) assertSame(reloaded.getNodeList().get(node.getId()), node);
+    }
+}
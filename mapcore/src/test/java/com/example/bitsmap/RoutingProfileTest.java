@@ -0,0 +1,87 @@
+package com.example.bitsmap;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RoutingProfileTest {
+
+    private static final double EPS = 1e-6;
+
+    private static final MapData mapData = ShippedMap.get();
+
+    @Test
+    public void defaultProfilesKeepTheOldRoutes() {
+        List<MapNode> nodeList = mapData.getNodeList();
+        CampusGraph campusGraph = mapData.getCampusGraph();
+        PathFinder pathFinder = new PathFinder(nodeList, campusGraph);
+        RoutingProfile.Weights walking = RoutingProfile.walking().weigh(campusGraph);
+        RoutingProfile.Weights wheelchair = RoutingProfile.wheelchair().weigh(campusGraph);
+        EdgeMask filtered = new WheelchairFilter(mapData).toMask(campusGraph, nodeList);
+        List<MapNode> expected = new ArrayList<>(), actual = new ArrayList<>();
+
+        for(MapNode source : nodeList) {
+            for(MapNode target : nodeList) {
+                assertEquals(pathFinder.findPath(source, target, (EdgeMask) null, expected), pathFinder.findPath(source, target, walking, actual), 0);
+                assertEquals(expected, actual);
+                assertEquals(pathFinder.findPath(source, target, filtered, expected), pathFinder.findPath(source, target, wheelchair, actual), 0);
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void penaltiesAreChargedPerFloorChange() {
+        CampusGraph campusGraph = mapData.getCampusGraph();
+        RoutingProfile profile = new RoutingProfile("test");
+        profile.setStairsPenalty(7);
+        profile.setStairsWithoutRampPenalty(3);
+        profile.setLiftWait(11);
+        RoutingProfile.Weights weights = profile.weigh(campusGraph);
+
+        for(int e = 0; e < campusGraph.getEdgeCount(); e++) {
+            double extra = weights.getCost(e) - campusGraph.getLength(e);
+            if(campusGraph.hasFlag(e, CampusGraph.SAME_FLOOR)) assertEquals(0, extra, 0);
+            else if(campusGraph.hasFlag(e, CampusGraph.LIFT)) assertEquals(11, extra, EPS);
+            else if(campusGraph.hasFlag(e, CampusGraph.STAIRS)) assertEquals(campusGraph.hasFlag(e, CampusGraph.ACCESSIBLE)? 7 : 10, extra, EPS);
+        }
+    }
+
+    @Test
+    public void aStarStaysExactWithPenalties() {
+        List<MapNode> nodeList = mapData.getNodeList();
+        CampusGraph campusGraph = mapData.getCampusGraph();
+        RoutingProfile profile = RoutingProfile.trolley();
+        profile.setStairsPenalty(50);
+        RoutingProfile.Weights weights = profile.weigh(campusGraph);
+
+        PathFinder dijkstra = new PathFinder(nodeList, campusGraph);
+        PathFinder aStar = new PathFinder(nodeList, campusGraph);
+        aStar.setUseAStar(true);
+        List<MapNode> path = new ArrayList<>();
+
+        for(MapNode source : nodeList) {
+            for(MapNode target : nodeList) {
+                double expected = dijkstra.findPath(source, target, weights, path);
+                double actual = aStar.findPath(source, target, weights, path);
+                assertEquals(expected, actual, EPS);
+                if(actual == Double.POSITIVE_INFINITY) continue;
+
+                // the returned cost is what the path's edges add up to, and trolleys never take plain stairs
+                assertEquals(actual, weights.pathCost(path), EPS);
+                for(int i = 1; i < path.size(); i++) {
+                    int e = weights.edge(path.get(i-1).getId(), path.get(i).getId());
+                    assertFalse(campusGraph.hasFlag(e, CampusGraph.STAIRS) && !campusGraph.hasFlag(e, CampusGraph.LIFT | CampusGraph.ACCESSIBLE));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativePenaltyIsRejected() {
+        new RoutingProfile("test").setLiftWait(-1);
+    }
+}
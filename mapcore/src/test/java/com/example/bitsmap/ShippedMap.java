@@ -0,0 +1,44 @@
+package com.example.bitsmap;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+// The campus the app ships, parsed once for every test class. MapData is never modified, so one copy
+// can be shared; tests needing a separate one parse() it again.
+final class ShippedMap {
+
+    private static final String PATH = "../app/src/main/map/nodes.txt";
+
+    private static MapParser parser;
+    private static MapData mapData;
+
+    private ShippedMap() {}
+
+    static synchronized MapData get() {
+        if(mapData == null) {
+            parser = new MapParser();
+            mapData = parse(parser);
+        }
+        return mapData;
+    }
+
+    // what get() was parsed with, for the adjacency lists and floor changer map behind it
+    static synchronized MapParser parser() {
+        get();
+        return parser;
+    }
+
+    static MapData parse() {
+        return parse(new MapParser());
+    }
+
+    private static MapData parse(MapParser parser) {
+        try(InputStream in = new FileInputStream(PATH)) {
+            return parser.parse(in);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
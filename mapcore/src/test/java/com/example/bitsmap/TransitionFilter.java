@@ -0,0 +1,21 @@
+package com.example.bitsmap;
+
+import java.util.List;
+
+// The per step check routes were filtered with before EdgeMask, asked about each pair of nodes
+// along a route. Kept as the reference the profile masks are checked against.
+interface TransitionFilter {
+
+    boolean transitionValid(MapNode from, MapNode to);
+
+    // the edges the filter lets through, asked once per edge
+    default EdgeMask toMask(CampusGraph graph, List<MapNode> nodeList) {
+        EdgeMask mask = new EdgeMask(graph.getEdgeCount());
+        for(int u = 0; u < graph.getNodeCount(); u++) {
+            for(int e = graph.getEdgeStart(u); e < graph.getEdgeEnd(u); e++) {
+                if(transitionValid(nodeList.get(u), nodeList.get(graph.getNeighbour(e)))) mask.set(e);
+            }
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.bitsmap;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Only lets a route change floors through a pair of accessible floor changers of the matching kind.
+// Assumes the nodes are connected properly. What wheelchair routes were filtered by before RoutingProfile.
+public class WheelchairFilter implements TransitionFilter {
+
+    private final Map<MapNode, List<Integer>> nodeToInfra;
+    private final List<Infra> infraList;
+
+    public WheelchairFilter(MapData mapData) {
+        nodeToInfra = mapData.getNodeToInfra();
+        infraList = mapData.getInfraList();
+    }
+
+    @Override
+    public boolean transitionValid(MapNode n1, MapNode n2) {
+        if(n1.getPosition().getZ() == n2.getPosition().getZ()) return true;
+
+        List<Integer> l1 = nodeToInfra.get(n1);
+
+        // n1 accessibility checked here
+        Set<Infratype> floorChangerTypes1 = new HashSet<>();
+        for(Integer i : l1) {
+            Infra infra = infraList.get(i);
+            if(infra instanceof FloorChanger && ((FloorChanger)infra).isAccessible()) {
+                floorChangerTypes1.add(infra.getInfratype());
+            }
+        }
+
+        double dz = n1.getPosition().getZ() - n2.getPosition().getZ();
+
+        // n2 accessibility checked here
+        for(Infratype t : floorChangerTypes1) {
+            if(dz < 0) {
+                if(t == Infratype.LiftUp && accessibleFloorChangerTypeExistsAtNode(Infratype.LiftDown, n2)) return true;
+                if(t == Infratype.StairsUp && accessibleFloorChangerTypeExistsAtNode(Infratype.StairsDown, n2)) return true;
+            }
+            else {
+                if(t == Infratype.LiftDown && accessibleFloorChangerTypeExistsAtNode(Infratype.LiftUp, n2)) return true;
+                if(t == Infratype.StairsDown && accessibleFloorChangerTypeExistsAtNode(Infratype.StairsUp, n2)) return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean accessibleFloorChangerTypeExistsAtNode(Infratype infraType, MapNode n) {
+        for(Integer infraId : Objects.requireNonNull(nodeToInfra.get(n))) {
+            Infra infra = infraList.get(infraId);
+
+            if(infra instanceof FloorChanger) {
+                FloorChanger fc = (FloorChanger) infra;
+
+                if(!fc.isAccessible()) continue;
+                if(infra.getInfratype() == infraType) return true;
+            }
+        }
+
+        return false;
+    }
+}